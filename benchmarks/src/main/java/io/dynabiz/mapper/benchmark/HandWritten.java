@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper.benchmark;
+
+/**
+ * The copies a developer would write by hand, the baseline of {@link MapperBenchmark}.
+ */
+final class HandWritten {
+
+    private HandWritten() {
+    }
+
+    static SmallDto copy(SmallDto target, SmallEntity source){
+        target.setId(source.getId());
+        target.setName(source.getName());
+        target.setEmail(source.getEmail());
+        target.setStatus(source.getStatus());
+        target.setBalance(source.getBalance());
+        return target;
+    }
+
+    /**
+     * Trims like {@link TrimFilter}.
+     */
+    static FilteredDto copy(FilteredDto target, SmallEntity source){
+        target.setId(source.getId());
+        target.setName(source.getName() == null ? null : source.getName().trim());
+        target.setEmail(source.getEmail() == null ? null : source.getEmail().trim());
+        return target;
+    }
+
+    /**
+     * Copies, then adjusts the status like the {@link io.dynabiz.mapper.Mapping} of {@link MapperBenchmark}.
+     */
+    static SmallDto copyWithCallback(SmallDto target, SmallEntity source){
+        copy(target, source);
+        target.setStatus(source.getStatus() + 1);
+        return target;
+    }
+
+    static WideDto copy(WideDto target, WideEntity source){
+        target.setProp00(source.getProp00());
+        target.setProp01(source.getProp01());
+        target.setProp02(source.getProp02());
+        target.setProp03(source.getProp03());
+        target.setProp04(source.getProp04());
+        target.setProp05(source.getProp05());
+        target.setProp06(source.getProp06());
+        target.setProp07(source.getProp07());
+        target.setProp08(source.getProp08());
+        target.setProp09(source.getProp09());
+        target.setProp10(source.getProp10());
+        target.setProp11(source.getProp11());
+        target.setProp12(source.getProp12());
+        target.setProp13(source.getProp13());
+        target.setProp14(source.getProp14());
+        target.setProp15(source.getProp15());
+        target.setProp16(source.getProp16());
+        target.setProp17(source.getProp17());
+        target.setProp18(source.getProp18());
+        target.setProp19(source.getProp19());
+        target.setProp20(source.getProp20());
+        target.setProp21(source.getProp21());
+        target.setProp22(source.getProp22());
+        target.setProp23(source.getProp23());
+        target.setProp24(source.getProp24());
+        target.setProp25(source.getProp25());
+        target.setProp26(source.getProp26());
+        target.setProp27(source.getProp27());
+        target.setProp28(source.getProp28());
+        target.setProp29(source.getProp29());
+        target.setProp30(source.getProp30());
+        target.setProp31(source.getProp31());
+        target.setProp32(source.getProp32());
+        target.setProp33(source.getProp33());
+        target.setProp34(source.getProp34());
+        target.setProp35(source.getProp35());
+        target.setProp36(source.getProp36());
+        target.setProp37(source.getProp37());
+        target.setProp38(source.getProp38());
+        target.setProp39(source.getProp39());
+        target.setProp40(source.getProp40());
+        target.setProp41(source.getProp41());
+        target.setProp42(source.getProp42());
+        target.setProp43(source.getProp43());
+        target.setProp44(source.getProp44());
+        target.setProp45(source.getProp45());
+        target.setProp46(source.getProp46());
+        target.setProp47(source.getProp47());
+        target.setProp48(source.getProp48());
+        target.setProp49(source.getProp49());
+        target.setProp50(source.getProp50());
+        target.setProp51(source.getProp51());
+        return target;
+    }
+
+    static PrimitiveDto copy(PrimitiveDto target, PrimitiveEntity source){
+        target.setId(source.getId());
+        target.setQuantity(source.getQuantity());
+        target.setPrice(source.getPrice());
+        target.setRate(source.getRate());
+        target.setLevel(source.getLevel());
+        target.setFlags(source.getFlags());
+        target.setGrade(source.getGrade());
+        target.setActive(source.isActive());
+        return target;
+    }
+
+    static InheritedDto copy(InheritedDto target, InheritedEntity source){
+        target.setId(source.getId());
+        target.setCreatedBy(source.getCreatedBy());
+        target.setVersion(source.getVersion());
+        target.setUpdatedBy(source.getUpdatedBy());
+        target.setName(source.getName());
+        target.setStatus(source.getStatus());
+        return target;
+    }
+
+    static WideEntity wideEntity(){
+        WideEntity entity = new WideEntity();
+        entity.setProp00(0L);
+        entity.setProp01(1);
+        entity.setProp02(2.5);
+        entity.setProp03("value3");
+        entity.setProp04(4L);
+        entity.setProp05(5);
+        entity.setProp06(6.5);
+        entity.setProp07("value7");
+        entity.setProp08(8L);
+        entity.setProp09(9);
+        entity.setProp10(10.5);
+        entity.setProp11("value11");
+        entity.setProp12(12L);
+        entity.setProp13(13);
+        entity.setProp14(14.5);
+        entity.setProp15("value15");
+        entity.setProp16(16L);
+        entity.setProp17(17);
+        entity.setProp18(18.5);
+        entity.setProp19("value19");
+        entity.setProp20(20L);
+        entity.setProp21(21);
+        entity.setProp22(22.5);
+        entity.setProp23("value23");
+        entity.setProp24(24L);
+        entity.setProp25(25);
+        entity.setProp26(26.5);
+        entity.setProp27("value27");
+        entity.setProp28(28L);
+        entity.setProp29(29);
+        entity.setProp30(30.5);
+        entity.setProp31("value31");
+        entity.setProp32(32L);
+        entity.setProp33(33);
+        entity.setProp34(34.5);
+        entity.setProp35("value35");
+        entity.setProp36(36L);
+        entity.setProp37(37);
+        entity.setProp38(38.5);
+        entity.setProp39("value39");
+        entity.setProp40(40L);
+        entity.setProp41(41);
+        entity.setProp42(42.5);
+        entity.setProp43("value43");
+        entity.setProp44(44L);
+        entity.setProp45(45);
+        entity.setProp46(46.5);
+        entity.setProp47("value47");
+        entity.setProp48(48L);
+        entity.setProp49(49);
+        entity.setProp50(50.5);
+        entity.setProp51("value51");
+        return entity;
+    }
+}
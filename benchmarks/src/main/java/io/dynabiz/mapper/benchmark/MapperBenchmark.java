@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper.benchmark;
+
+import io.dynabiz.mapper.Mapper;
+import io.dynabiz.mapper.MapperEngine;
+import io.dynabiz.mapper.Mapping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps small, wide, primitive, inherited, filtered and callback shapes through every engine, next to
+ * the hand-written copy of the same shape.
+ *
+ * <p>{@code mapFrom} benchmarks include the allocation of the target, {@code map} benchmarks reuse one, and
+ * {@code mapAll} benchmarks map {@value #BULK_SIZE} sources per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+    static final int BULK_SIZE = 1000;
+
+    @Param({"reflection", "method-handle", "generated"})
+    public String engine;
+
+    private Mapper mapper;
+    private SmallEntity small;
+    private WideEntity wide;
+    private PrimitiveEntity primitive;
+    private InheritedEntity inherited;
+    private List<SmallEntity> smalls;
+    private SmallDto smallTarget;
+    private WideDto wideTarget;
+    private PrimitiveDto primitiveTarget;
+    private final Mapping<SmallEntity, SmallDto> callback = (source, target) -> target.setStatus(source.getStatus() + 1);
+
+    @Setup
+    public void setUp(){
+        mapper = Mapper.builder().engine(engine(engine)).build();
+
+        small = new SmallEntity();
+        small.setId(1004);
+        small.setName(" name ");
+        small.setEmail(" someone@example.com ");
+        small.setStatus(2);
+        small.setBalance(new BigDecimal("1024.50"));
+
+        wide = HandWritten.wideEntity();
+
+        primitive = new PrimitiveEntity();
+        primitive.setId(Long.MAX_VALUE);
+        primitive.setQuantity(100000);
+        primitive.setPrice(1024.5);
+        primitive.setRate(0.75f);
+        primitive.setLevel((short) 1000);
+        primitive.setFlags((byte) 7);
+        primitive.setGrade('A');
+        primitive.setActive(true);
+
+        inherited = new InheritedEntity();
+        inherited.setId(1);
+        inherited.setCreatedBy("creator");
+        inherited.setVersion(3);
+        inherited.setUpdatedBy("updater");
+        inherited.setName("name");
+        inherited.setStatus(2);
+
+        smalls = new ArrayList<>(BULK_SIZE);
+        for (int i = 0; i < BULK_SIZE; i++) smalls.add(small);
+
+        smallTarget = new SmallDto();
+        wideTarget = new WideDto();
+        primitiveTarget = new PrimitiveDto();
+    }
+
+    private static MapperEngine engine(String name){
+        for (MapperEngine engine : new MapperEngine[]{MapperEngine.REFLECTION, MapperEngine.METHOD_HANDLE, MapperEngine.GENERATED}) {
+            if(engine.toString().equals(name)) return engine;
+        }
+        throw new IllegalArgumentException("Unknown engine " + name);
+    }
+
+    @Benchmark
+    public SmallDto smallMapFrom(){
+        return mapper.mapFrom(SmallDto.class, small);
+    }
+
+    @Benchmark
+    public SmallDto smallMap(){
+        mapper.map(smallTarget, small);
+        return smallTarget;
+    }
+
+    @Benchmark
+    public SmallDto smallHandWritten(){
+        return HandWritten.copy(new SmallDto(), small);
+    }
+
+    @Benchmark
+    public WideDto wideMapFrom(){
+        return mapper.mapFrom(WideDto.class, wide);
+    }
+
+    @Benchmark
+    public WideDto wideMap(){
+        mapper.map(wideTarget, wide);
+        return wideTarget;
+    }
+
+    @Benchmark
+    public WideDto wideHandWritten(){
+        return HandWritten.copy(new WideDto(), wide);
+    }
+
+    @Benchmark
+    public PrimitiveDto primitiveMap(){
+        mapper.map(primitiveTarget, primitive);
+        return primitiveTarget;
+    }
+
+    @Benchmark
+    public PrimitiveDto primitiveHandWritten(){
+        return HandWritten.copy(primitiveTarget, primitive);
+    }
+
+    @Benchmark
+    public InheritedDto inheritedMapFrom(){
+        return mapper.mapFrom(InheritedDto.class, inherited);
+    }
+
+    @Benchmark
+    public InheritedDto inheritedHandWritten(){
+        return HandWritten.copy(new InheritedDto(), inherited);
+    }
+
+    @Benchmark
+    public FilteredDto filteredMapFrom(){
+        return mapper.mapFrom(FilteredDto.class, small);
+    }
+
+    @Benchmark
+    public FilteredDto filteredHandWritten(){
+        return HandWritten.copy(new FilteredDto(), small);
+    }
+
+    @Benchmark
+    public SmallDto callbackMapFrom(){
+        return mapper.mapFrom(SmallDto.class, small, callback);
+    }
+
+    @Benchmark
+    public SmallDto callbackHandWritten(){
+        return HandWritten.copyWithCallback(new SmallDto(), small);
+    }
+
+    @Benchmark
+    public List<SmallDto> smallMapAll(){
+        return mapper.mapAll(SmallDto.class, smalls);
+    }
+
+    @Benchmark
+    public List<SmallDto> smallHandWrittenAll(){
+        List<SmallDto> targets = new ArrayList<>(smalls.size());
+        for (SmallEntity source : smalls) targets.add(HandWritten.copy(new SmallDto(), source));
+        return targets;
+    }
+}
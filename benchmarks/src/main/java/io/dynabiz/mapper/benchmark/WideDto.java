@@ -0,0 +1,551 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper.benchmark;
+
+import io.dynabiz.mapper.Mapped;
+
+/**
+ * The wide target, 52 properties.
+ */
+public class WideDto {
+    @Mapped
+    private long prop00;
+    @Mapped
+    private int prop01;
+    @Mapped
+    private double prop02;
+    @Mapped
+    private String prop03;
+    @Mapped
+    private long prop04;
+    @Mapped
+    private int prop05;
+    @Mapped
+    private double prop06;
+    @Mapped
+    private String prop07;
+    @Mapped
+    private long prop08;
+    @Mapped
+    private int prop09;
+    @Mapped
+    private double prop10;
+    @Mapped
+    private String prop11;
+    @Mapped
+    private long prop12;
+    @Mapped
+    private int prop13;
+    @Mapped
+    private double prop14;
+    @Mapped
+    private String prop15;
+    @Mapped
+    private long prop16;
+    @Mapped
+    private int prop17;
+    @Mapped
+    private double prop18;
+    @Mapped
+    private String prop19;
+    @Mapped
+    private long prop20;
+    @Mapped
+    private int prop21;
+    @Mapped
+    private double prop22;
+    @Mapped
+    private String prop23;
+    @Mapped
+    private long prop24;
+    @Mapped
+    private int prop25;
+    @Mapped
+    private double prop26;
+    @Mapped
+    private String prop27;
+    @Mapped
+    private long prop28;
+    @Mapped
+    private int prop29;
+    @Mapped
+    private double prop30;
+    @Mapped
+    private String prop31;
+    @Mapped
+    private long prop32;
+    @Mapped
+    private int prop33;
+    @Mapped
+    private double prop34;
+    @Mapped
+    private String prop35;
+    @Mapped
+    private long prop36;
+    @Mapped
+    private int prop37;
+    @Mapped
+    private double prop38;
+    @Mapped
+    private String prop39;
+    @Mapped
+    private long prop40;
+    @Mapped
+    private int prop41;
+    @Mapped
+    private double prop42;
+    @Mapped
+    private String prop43;
+    @Mapped
+    private long prop44;
+    @Mapped
+    private int prop45;
+    @Mapped
+    private double prop46;
+    @Mapped
+    private String prop47;
+    @Mapped
+    private long prop48;
+    @Mapped
+    private int prop49;
+    @Mapped
+    private double prop50;
+    @Mapped
+    private String prop51;
+
+    public long getProp00() {
+        return prop00;
+    }
+
+    public void setProp00(long prop00) {
+        this.prop00 = prop00;
+    }
+
+    public int getProp01() {
+        return prop01;
+    }
+
+    public void setProp01(int prop01) {
+        this.prop01 = prop01;
+    }
+
+    public double getProp02() {
+        return prop02;
+    }
+
+    public void setProp02(double prop02) {
+        this.prop02 = prop02;
+    }
+
+    public String getProp03() {
+        return prop03;
+    }
+
+    public void setProp03(String prop03) {
+        this.prop03 = prop03;
+    }
+
+    public long getProp04() {
+        return prop04;
+    }
+
+    public void setProp04(long prop04) {
+        this.prop04 = prop04;
+    }
+
+    public int getProp05() {
+        return prop05;
+    }
+
+    public void setProp05(int prop05) {
+        this.prop05 = prop05;
+    }
+
+    public double getProp06() {
+        return prop06;
+    }
+
+    public void setProp06(double prop06) {
+        this.prop06 = prop06;
+    }
+
+    public String getProp07() {
+        return prop07;
+    }
+
+    public void setProp07(String prop07) {
+        this.prop07 = prop07;
+    }
+
+    public long getProp08() {
+        return prop08;
+    }
+
+    public void setProp08(long prop08) {
+        this.prop08 = prop08;
+    }
+
+    public int getProp09() {
+        return prop09;
+    }
+
+    public void setProp09(int prop09) {
+        this.prop09 = prop09;
+    }
+
+    public double getProp10() {
+        return prop10;
+    }
+
+    public void setProp10(double prop10) {
+        this.prop10 = prop10;
+    }
+
+    public String getProp11() {
+        return prop11;
+    }
+
+    public void setProp11(String prop11) {
+        this.prop11 = prop11;
+    }
+
+    public long getProp12() {
+        return prop12;
+    }
+
+    public void setProp12(long prop12) {
+        this.prop12 = prop12;
+    }
+
+    public int getProp13() {
+        return prop13;
+    }
+
+    public void setProp13(int prop13) {
+        this.prop13 = prop13;
+    }
+
+    public double getProp14() {
+        return prop14;
+    }
+
+    public void setProp14(double prop14) {
+        this.prop14 = prop14;
+    }
+
+    public String getProp15() {
+        return prop15;
+    }
+
+    public void setProp15(String prop15) {
+        this.prop15 = prop15;
+    }
+
+    public long getProp16() {
+        return prop16;
+    }
+
+    public void setProp16(long prop16) {
+        this.prop16 = prop16;
+    }
+
+    public int getProp17() {
+        return prop17;
+    }
+
+    public void setProp17(int prop17) {
+        this.prop17 = prop17;
+    }
+
+    public double getProp18() {
+        return prop18;
+    }
+
+    public void setProp18(double prop18) {
+        this.prop18 = prop18;
+    }
+
+    public String getProp19() {
+        return prop19;
+    }
+
+    public void setProp19(String prop19) {
+        this.prop19 = prop19;
+    }
+
+    public long getProp20() {
+        return prop20;
+    }
+
+    public void setProp20(long prop20) {
+        this.prop20 = prop20;
+    }
+
+    public int getProp21() {
+        return prop21;
+    }
+
+    public void setProp21(int prop21) {
+        this.prop21 = prop21;
+    }
+
+    public double getProp22() {
+        return prop22;
+    }
+
+    public void setProp22(double prop22) {
+        this.prop22 = prop22;
+    }
+
+    public String getProp23() {
+        return prop23;
+    }
+
+    public void setProp23(String prop23) {
+        this.prop23 = prop23;
+    }
+
+    public long getProp24() {
+        return prop24;
+    }
+
+    public void setProp24(long prop24) {
+        this.prop24 = prop24;
+    }
+
+    public int getProp25() {
+        return prop25;
+    }
+
+    public void setProp25(int prop25) {
+        this.prop25 = prop25;
+    }
+
+    public double getProp26() {
+        return prop26;
+    }
+
+    public void setProp26(double prop26) {
+        this.prop26 = prop26;
+    }
+
+    public String getProp27() {
+        return prop27;
+    }
+
+    public void setProp27(String prop27) {
+        this.prop27 = prop27;
+    }
+
+    public long getProp28() {
+        return prop28;
+    }
+
+    public void setProp28(long prop28) {
+        this.prop28 = prop28;
+    }
+
+    public int getProp29() {
+        return prop29;
+    }
+
+    public void setProp29(int prop29) {
+        this.prop29 = prop29;
+    }
+
+    public double getProp30() {
+        return prop30;
+    }
+
+    public void setProp30(double prop30) {
+        this.prop30 = prop30;
+    }
+
+    public String getProp31() {
+        return prop31;
+    }
+
+    public void setProp31(String prop31) {
+        this.prop31 = prop31;
+    }
+
+    public long getProp32() {
+        return prop32;
+    }
+
+    public void setProp32(long prop32) {
+        this.prop32 = prop32;
+    }
+
+    public int getProp33() {
+        return prop33;
+    }
+
+    public void setProp33(int prop33) {
+        this.prop33 = prop33;
+    }
+
+    public double getProp34() {
+        return prop34;
+    }
+
+    public void setProp34(double prop34) {
+        this.prop34 = prop34;
+    }
+
+    public String getProp35() {
+        return prop35;
+    }
+
+    public void setProp35(String prop35) {
+        this.prop35 = prop35;
+    }
+
+    public long getProp36() {
+        return prop36;
+    }
+
+    public void setProp36(long prop36) {
+        this.prop36 = prop36;
+    }
+
+    public int getProp37() {
+        return prop37;
+    }
+
+    public void setProp37(int prop37) {
+        this.prop37 = prop37;
+    }
+
+    public double getProp38() {
+        return prop38;
+    }
+
+    public void setProp38(double prop38) {
+        this.prop38 = prop38;
+    }
+
+    public String getProp39() {
+        return prop39;
+    }
+
+    public void setProp39(String prop39) {
+        this.prop39 = prop39;
+    }
+
+    public long getProp40() {
+        return prop40;
+    }
+
+    public void setProp40(long prop40) {
+        this.prop40 = prop40;
+    }
+
+    public int getProp41() {
+        return prop41;
+    }
+
+    public void setProp41(int prop41) {
+        this.prop41 = prop41;
+    }
+
+    public double getProp42() {
+        return prop42;
+    }
+
+    public void setProp42(double prop42) {
+        this.prop42 = prop42;
+    }
+
+    public String getProp43() {
+        return prop43;
+    }
+
+    public void setProp43(String prop43) {
+        this.prop43 = prop43;
+    }
+
+    public long getProp44() {
+        return prop44;
+    }
+
+    public void setProp44(long prop44) {
+        this.prop44 = prop44;
+    }
+
+    public int getProp45() {
+        return prop45;
+    }
+
+    public void setProp45(int prop45) {
+        this.prop45 = prop45;
+    }
+
+    public double getProp46() {
+        return prop46;
+    }
+
+    public void setProp46(double prop46) {
+        this.prop46 = prop46;
+    }
+
+    public String getProp47() {
+        return prop47;
+    }
+
+    public void setProp47(String prop47) {
+        this.prop47 = prop47;
+    }
+
+    public long getProp48() {
+        return prop48;
+    }
+
+    public void setProp48(long prop48) {
+        this.prop48 = prop48;
+    }
+
+    public int getProp49() {
+        return prop49;
+    }
+
+    public void setProp49(int prop49) {
+        this.prop49 = prop49;
+    }
+
+    public double getProp50() {
+        return prop50;
+    }
+
+    public void setProp50(double prop50) {
+        this.prop50 = prop50;
+    }
+
+    public String getProp51() {
+        return prop51;
+    }
+
+    public void setProp51(String prop51) {
+        this.prop51 = prop51;
+    }
+}
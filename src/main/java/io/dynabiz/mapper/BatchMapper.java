@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+/**
+ * Maps a run of sources to one target class. The plan is looked up again only when the source class
+ * changes, in between every source touches the cached plan so the cache does not evict it.
+ *
+ * <p>A batch mapper is not thread safe, every thread or chunk uses its own.
+ */
+final class BatchMapper<T, ST> {
+    private final Mapper owner;
+    private final Class<T> targetType;
+    private final Mapping<ST, T> mapping;
+    private MappingPlan cached;
+
+    BatchMapper(Mapper owner, Class<T> targetType, Mapping<ST, T> mapping) {
+        this.owner = owner;
+        this.targetType = targetType;
+        this.mapping = mapping;
+    }
+
+    /**
+     * @return the mapped target, or {@code null} for a {@code null} source.
+     */
+    @SuppressWarnings("unchecked")
+    T map(ST source){
+        if(source == null) return null;
+        if(cached == null || cached.getSourceType() != source.getClass())
+            cached = owner.lookupPlan(targetType, source.getClass());
+        MappingPlan plan = cached.touch();
+        T target = (T) plan.mapFrom(owner, source);
+        if(mapping != null) mapping.mapTo(source, target);
+        return target;
+    }
+}
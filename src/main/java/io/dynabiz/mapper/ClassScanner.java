@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Lists the classes of a package and its sub packages, from directories and jar files on the class path.
+ */
+final class ClassScanner {
+
+    private ClassScanner() {
+    }
+
+    static List<Class<?>> scan(String packageName, ClassLoader loader){
+        String path = packageName.replace('.', '/');
+        List<String> classNames = new ArrayList<>();
+        try {
+            Enumeration<URL> resources = loader.getResources(path);
+            while (resources.hasMoreElements()) {
+                URL resource = resources.nextElement();
+                if("file".equals(resource.getProtocol()))
+                    scanDirectory(new File(resource.toURI()), packageName, classNames);
+                else if("jar".equals(resource.getProtocol()))
+                    scanJar(resource, path, classNames);
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new MapperException(e);
+        }
+
+        List<Class<?>> classes = new ArrayList<>(classNames.size());
+        for (String className : classNames) {
+            try {
+                classes.add(Class.forName(className, false, loader));
+            } catch (ClassNotFoundException | LinkageError ignored) {
+                // Not loadable here, e.g. a missing optional dependency.
+            }
+        }
+        return classes;
+    }
+
+    private static void scanDirectory(File directory, String packageName, List<String> classNames){
+        File[] files = directory.listFiles();
+        if(files == null) return;
+        for (File file : files) {
+            String name = file.getName();
+            if(file.isDirectory()) scanDirectory(file, packageName + "." + name, classNames);
+            else if(isClassFile(name)) classNames.add(packageName + "." + name.substring(0, name.length() - 6));
+        }
+    }
+
+    private static void scanJar(URL resource, String path, List<String> classNames) throws IOException {
+        URLConnection connection = resource.openConnection();
+        if(!(connection instanceof JarURLConnection)) return;
+        connection.setUseCaches(false);
+        try (JarFile jar = ((JarURLConnection) connection).getJarFile()) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if(name.startsWith(path + "/") && isClassFile(name))
+                    classNames.add(name.substring(0, name.length() - 6).replace('/', '.'));
+            }
+        }
+    }
+
+    private static boolean isClassFile(String name){
+        return name.endsWith(".class") && !name.endsWith("package-info.class") && !name.endsWith("module-info.class");
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+/**
+ * How a {@code @Mapped} array, {@link java.util.Collection} or {@link java.util.Map} property is copied,
+ * see {@link Mapped#collection}.
+ */
+public enum CollectionMode {
+    /**
+     * {@link #MAP} when the element class declares mapped properties and the source elements are of
+     * another class, {@link #COPY} when the source container cannot be assigned to the property,
+     * {@link #REFERENCE} otherwise.
+     */
+    AUTO,
+    /**
+     * Sets the source container itself.
+     */
+    REFERENCE,
+    /**
+     * Sets a new container of the property type with the same elements.
+     */
+    COPY,
+    /**
+     * Sets a new container of the property type whose elements are mapped to the element class of the
+     * property, when it declares mapped properties. Elements that already are of that class are kept.
+     */
+    MAP
+}
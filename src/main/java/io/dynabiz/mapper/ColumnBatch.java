@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code @Mapped} properties of a list of beans as columns: one array per property, of the property
+ * type, with one element per bean. A {@code long} property is a {@code long[]} column, so the columns can
+ * be handed to code that works on primitive arrays directly.
+ *
+ * <p>Batches are created by {@link Mapper#toColumns} or, to be filled by the caller, by
+ * {@link Mapper#newColumns}, and turned back into beans by {@link Mapper#fromColumns}. The columns are
+ * the arrays of the batch itself, not copies.
+ *
+ * @param <T> the class of the beans
+ */
+public final class ColumnBatch<T> {
+    private final Class<T> type;
+    private final int size;
+    private final List<String> names;
+    private final Object[] columns;
+
+    ColumnBatch(Class<T> type, int size, String[] names, Object[] columns) {
+        this.type = type;
+        this.size = size;
+        this.names = Collections.unmodifiableList(Arrays.asList(names));
+        this.columns = columns;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return the number of rows, that is the length of every column.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the property names of the columns, in column order.
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * @return the array of the property with the given name.
+     * @throws MapperException if there is no such column
+     */
+    public Object getColumn(String name){
+        int index = names.indexOf(name);
+        if(index < 0) throw new MapperException(String.format("%s has no mapped property named %s", type.getName(), name));
+        return columns[index];
+    }
+
+    /**
+     * @param arrayType the class of the array, e.g. {@code long[].class}
+     */
+    public <A> A getColumn(String name, Class<A> arrayType){
+        Object column = getColumn(name);
+        if(!arrayType.isInstance(column)) throw new MapperException(String.format("Column %s is a %s, not a %s",
+                name, column.getClass().getSimpleName(), arrayType.getSimpleName()));
+        return arrayType.cast(column);
+    }
+
+    Object getColumn(int index){
+        return columns[index];
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnBatch{" +
+                "type=" + type.getName() +
+                ", size=" + size +
+                ", names=" + names +
+                '}';
+    }
+}
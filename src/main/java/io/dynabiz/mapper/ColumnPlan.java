@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import io.dynabiz.util.Assert;
+import java.lang.reflect.Array;
+import java.lang.reflect.Member;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Moves the {@code @Mapped} properties of a class between beans and the columns of a {@link ColumnBatch},
+ * compiled once per class and {@link MapperEngine}.
+ *
+ * <p>A column is an array of the property type, so primitive properties land in primitive arrays. Engines
+ * that create handles move them through {@link Accessor}s that do not box, the others through the getter
+ * and setter accessors of the property.
+ */
+final class ColumnPlan {
+    private final Class<?> type;
+    private final String[] names;
+    private final Column[] columns;
+    private final Supplier<Object> constructor;
+
+    private ColumnPlan(Class<?> type, String[] names, Column[] columns) {
+        this.type = type;
+        this.names = names;
+        this.columns = columns;
+        this.constructor = PropertyAccessors.constructor(type);
+    }
+
+    /**
+     * Moves one property between a column and a bean.
+     */
+    interface Accessor {
+        void scatter(Object column, int index, Object bean);
+
+        void gather(Object column, int index, Object bean);
+    }
+
+    static ColumnPlan compile(MapperEngine engine, Class<?> type){
+        List<String> names = new ArrayList<>();
+        List<Column> columns = new ArrayList<>();
+        for(Class<?> curType = type;
+            curType != null && !Object.class.equals(curType);
+            curType = curType.getSuperclass()){
+            for (MappedDeclaration declaration : MappingPlan.declarations(curType)) {
+                MappingPlan.requireWriter(declaration);
+                Member getter = declaration.getField() != null ? declaration.getField()
+                        : PropertyAccessors.makeAccessible(Assert.notNull(
+                        MappingPlan.findGetter(declaration.getType(), declaration.getName(), type),
+                        new MapperException(String.format("Cannot find get method with field named %s type %s",
+                                declaration.getName(), declaration.getType()))));
+                Member setter = declaration.getField() != null ? declaration.getField() : declaration.getSetter();
+                if(setter == null && declaration.getType().isPrimitive()) setter = MappingPlan.findSetter(declaration, type);
+                names.add(declaration.getName());
+                columns.add(new Column(declaration, getter, setter, engine));
+            }
+        }
+        return new ColumnPlan(type, names.toArray(new String[0]), columns.toArray(new Column[0]));
+    }
+
+    <T> ColumnBatch<T> newBatch(Class<T> type, int size){
+        Object[] arrays = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) arrays[i] = Array.newInstance(columns[i].type, size);
+        return new ColumnBatch<>(type, size, names, arrays);
+    }
+
+    <T> ColumnBatch<T> scatter(Class<T> type, Collection<? extends T> beans){
+        ColumnBatch<T> batch = newBatch(type, beans.size());
+        for (int i = 0; i < columns.length; i++) columns[i].scatter(beans, batch.getColumn(i));
+        return batch;
+    }
+
+    /**
+     * @return new beans, one per row of the batch, in row order.
+     */
+    @SuppressWarnings("unchecked")
+    <T> List<T> gather(ColumnBatch<T> batch){
+        Assert.beTrue(batch.getNames().equals(Arrays.asList(names)),
+                new MapperException(String.format("The columns of the batch are not the ones of %s", type.getName())));
+        List<T> beans = new ArrayList<>(batch.size());
+        for (int row = 0; row < batch.size(); row++) beans.add((T) constructor.get());
+        for (int i = 0; i < columns.length; i++) columns[i].gather(batch.getColumn(i), beans);
+        return beans;
+    }
+
+    private static final class Column {
+        private final Class<?> type;
+        private final Accessor accessor;
+        private final Function<Object, Object> reader;
+        private final BiConsumer<Object, Object> writer;
+
+        private Column(MappedDeclaration declaration, Member getter, Member setter, MapperEngine engine) {
+            this.type = declaration.getType();
+            this.accessor = type.isPrimitive() && setter != null ? engine.column(getter, setter) : null;
+            this.reader = engine.getter(getter);
+            this.writer = declaration.getWriter() != null ? declaration.getWriter() : engine.setter(setter);
+        }
+
+        private void scatter(Collection<?> beans, Object column){
+            int index = 0;
+            if(accessor != null) {
+                for (Object bean : beans) accessor.scatter(column, index++, bean);
+            }
+            else if(column instanceof Object[]) {
+                Object[] values = (Object[]) column;
+                for (Object bean : beans) values[index++] = reader.apply(bean);
+            }
+            else {
+                for (Object bean : beans) Array.set(column, index++, reader.apply(bean));
+            }
+        }
+
+        private void gather(Object column, List<?> beans){
+            int size = beans.size();
+            if(accessor != null) {
+                for (int i = 0; i < size; i++) accessor.gather(column, i, beans.get(i));
+            }
+            else {
+                for (int i = 0; i < size; i++) writer.accept(beans.get(i), Array.get(column, i));
+            }
+        }
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Copies an array, {@link Collection} or {@link Map} property into a new container of the property type,
+ * see {@link CollectionMode}.
+ *
+ * <p>The container class, its element classes and whether the elements are mapped are resolved once by
+ * {@link MappingPlan}. The new container is sized from the source, and elements are mapped through the
+ * {@link MappingContext} of the call, so they share identities with the rest of the graph. Array elements
+ * the target component type cannot hold as they are go through the {@link ConverterRegistry}.
+ */
+abstract class ContainerConverter {
+    private final Class<?> type;
+
+    private ContainerConverter(Class<?> type) {
+        this.type = type;
+    }
+
+    /**
+     * @return the converter of the property, or {@code null} when the source container is set as it is.
+     */
+    static ContainerConverter of(CollectionMode mode, Class<?> type, Type genericType,
+                                 Class<?> valueType, Type genericValueType, ConverterRegistry converters){
+        if(mode == CollectionMode.REFERENCE || !isContainer(type)) return null;
+        boolean isMap = Map.class.isAssignableFrom(type);
+        Class<?> keyType = isMap ? typeArgument(genericType, Map.class, 0) : null;
+        Class<?> elementType = type.isArray() ? type.getComponentType()
+                : typeArgument(genericType, isMap ? Map.class : Collection.class, isMap ? 1 : 0);
+        Class<?> valueElementType = valueType.isArray() ? valueType.getComponentType()
+                : typeArgument(genericValueType, isMap ? Map.class : Collection.class, isMap ? 1 : 0);
+
+        if(mode == CollectionMode.AUTO) {
+            boolean mapElements = isMapped(elementType) && !elementType.isAssignableFrom(valueElementType)
+                    || isMap && isMapped(keyType) && !keyType.isAssignableFrom(typeArgument(genericValueType, Map.class, 0));
+            if(!mapElements && type.isAssignableFrom(valueType)) return null;
+            mode = mapElements ? CollectionMode.MAP : CollectionMode.COPY;
+        }
+
+        boolean map = mode == CollectionMode.MAP;
+        if(type.isArray()) {
+            Element element = new Element(elementType, map);
+            if(element.mapped || ConverterRegistry.isAssignable(valueElementType, elementType)
+                    || ConverterRegistry.isWidening(valueElementType, elementType))
+                return new ArrayConverter(type, element);
+            return new ArrayConverter(type, new Element(elementType, converters.dynamic(elementType)));
+        }
+        if(isMap) return new MapConverter(type, new Element(keyType, map), new Element(elementType, map));
+        return new CollectionConverter(type, new Element(elementType, map));
+    }
+
+    /**
+     * @return whether elements are mapped, which needs a {@link MappingContext}.
+     */
+    abstract boolean isDeep();
+
+    abstract Object convert(Object value, MappingContext context);
+
+    /**
+     * Compares a source container with the current container of the target in iteration order, without
+     * mapping its elements.
+     *
+     * @param matcher compares a mapped element with the current one
+     * @return whether {@link #convert} would create an equal container
+     */
+    abstract boolean matches(Object value, Object current, ElementMatcher matcher);
+
+    /**
+     * Compares a source element with the current element it would be mapped to.
+     */
+    interface ElementMatcher {
+        boolean matches(Class<?> type, Object element, Object current);
+    }
+
+    /**
+     * @return the elements of an array or collection, or {@code null} when the value is neither.
+     */
+    private static Iterator<?> elements(Object value){
+        if(value instanceof Collection) return ((Collection<?>) value).iterator();
+        if(!value.getClass().isArray()) return null;
+        int length = Array.getLength(value);
+        return new Iterator<Object>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < length;
+            }
+
+            @Override
+            public Object next() {
+                return Array.get(value, index++);
+            }
+        };
+    }
+
+    /**
+     * Compares two arrays or collections element by element.
+     */
+    private static boolean matches(Object value, Object current, Element element, ElementMatcher matcher){
+        Iterator<?> sources = elements(value);
+        Iterator<?> currents = elements(current);
+        if(sources == null || currents == null) return false;
+        while (sources.hasNext() && currents.hasNext()) {
+            if(!element.matches(sources.next(), currents.next(), matcher)) return false;
+        }
+        return !sources.hasNext() && !currents.hasNext();
+    }
+
+    MapperException cannotCopy(Object value){
+        return new MapperException(String.format("Cannot copy %s to %s", value.getClass().getName(), type.getName()));
+    }
+
+    private static boolean isContainer(Class<?> type){
+        return type.isArray() || Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type);
+    }
+
+    private static boolean isMapped(Class<?> type){
+        return type != null && MappingPlan.isMappedType(type);
+    }
+
+    /**
+     * @return the class of a type argument of the given supertype, {@link Object} when it is unknown.
+     */
+    private static Class<?> typeArgument(Type type, Class<?> superType, int index){
+        if(type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            if(superType.isAssignableFrom(rawType(parameterized.getRawType()))
+                    && parameterized.getActualTypeArguments().length == superType.getTypeParameters().length)
+                return rawType(parameterized.getActualTypeArguments()[index]);
+        }
+        return Object.class;
+    }
+
+    private static Class<?> rawType(Type type){
+        if(type instanceof Class) return (Class<?>) type;
+        if(type instanceof ParameterizedType) return rawType(((ParameterizedType) type).getRawType());
+        if(type instanceof WildcardType) return rawType(((WildcardType) type).getUpperBounds()[0]);
+        if(type instanceof TypeVariable) return rawType(((TypeVariable<?>) type).getBounds()[0]);
+        if(type instanceof GenericArrayType)
+            return Array.newInstance(rawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        return Object.class;
+    }
+
+    /**
+     * @return the initial capacity of a hash table that holds the given number of entries without rehashing.
+     */
+    static int capacity(int size){
+        return (int) (size / 0.75f) + 1;
+    }
+
+    private static final class Element {
+        private final Class<?> type;
+        private final boolean mapped;
+        private final Function<Object, Object> converter;
+
+        private Element(Class<?> type, boolean map) {
+            this.type = type;
+            this.mapped = map && isMapped(type);
+            this.converter = null;
+        }
+
+        /**
+         * An element that is not mapped but converted, because the source elements cannot be stored as they are.
+         */
+        private Element(Class<?> type, Function<Object, Object> converter) {
+            this.type = type;
+            this.mapped = false;
+            this.converter = converter;
+        }
+
+        private Object convert(Object element, MappingContext context){
+            if(element == null) return null;
+            if(converter != null) return converter.apply(element);
+            return mapped && !type.isInstance(element) ? context.map(type, element) : element;
+        }
+
+        private boolean matches(Object element, Object current, ElementMatcher matcher){
+            if(mapped) return matcher.matches(type, element, current);
+            return Objects.equals(converter != null && element != null ? converter.apply(element) : element, current);
+        }
+    }
+
+    private static final class ArrayConverter extends ContainerConverter {
+        private final Element element;
+
+        private ArrayConverter(Class<?> type, Element element) {
+            super(type);
+            this.element = element;
+        }
+
+        @Override
+        boolean isDeep() {
+            return element.mapped;
+        }
+
+        @Override
+        Object convert(Object value, MappingContext context) {
+            if(value instanceof Collection) {
+                Collection<?> sources = (Collection<?>) value;
+                Object array = Array.newInstance(element.type, sources.size());
+                int index = 0;
+                for (Object source : sources) Array.set(array, index++, element.convert(source, context));
+                return array;
+            }
+            if(!value.getClass().isArray()) throw cannotCopy(value);
+            int length = Array.getLength(value);
+            Object array = Array.newInstance(element.type, length);
+            if(!element.mapped && (value.getClass() == array.getClass() || !element.type.isPrimitive()
+                    && element.type.isAssignableFrom(value.getClass().getComponentType()))) {
+                System.arraycopy(value, 0, array, 0, length);
+            }
+            else if(!element.type.isPrimitive() && value instanceof Object[]) {
+                Object[] sources = (Object[]) value;
+                Object[] targets = (Object[]) array;
+                for (int i = 0; i < length; i++) targets[i] = element.convert(sources[i], context);
+            }
+            else {
+                for (int i = 0; i < length; i++) Array.set(array, i, element.convert(Array.get(value, i), context));
+            }
+            return array;
+        }
+
+        @Override
+        boolean matches(Object value, Object current, ElementMatcher matcher) {
+            return ContainerConverter.matches(value, current, element, matcher);
+        }
+    }
+
+    private static final class CollectionConverter extends ContainerConverter {
+        private final IntFunction<Collection<Object>> factory;
+        private final Element element;
+
+        private CollectionConverter(Class<?> type, Element element) {
+            super(type);
+            this.factory = factory(type);
+            this.element = element;
+        }
+
+        @Override
+        boolean isDeep() {
+            return element.mapped;
+        }
+
+        @Override
+        Object convert(Object value, MappingContext context) {
+            if(value instanceof Collection) {
+                Collection<?> sources = (Collection<?>) value;
+                Collection<Object> targets = factory.apply(sources.size());
+                for (Object source : sources) targets.add(element.convert(source, context));
+                return targets;
+            }
+            if(!value.getClass().isArray()) throw cannotCopy(value);
+            int length = Array.getLength(value);
+            Collection<Object> targets = factory.apply(length);
+            if(value instanceof Object[]) for (Object source : (Object[]) value) targets.add(element.convert(source, context));
+            else for (int i = 0; i < length; i++) targets.add(Array.get(value, i));
+            return targets;
+        }
+
+        @Override
+        boolean matches(Object value, Object current, ElementMatcher matcher) {
+            return ContainerConverter.matches(value, current, element, matcher);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static IntFunction<Collection<Object>> factory(Class<?> type){
+            if(type.isAssignableFrom(ArrayList.class)) return ArrayList::new;
+            if(type.isAssignableFrom(LinkedHashSet.class)) return size -> new LinkedHashSet<>(capacity(size));
+            if(type.isAssignableFrom(TreeSet.class)) return size -> new TreeSet<>();
+            if(type.isAssignableFrom(ArrayDeque.class)) return ArrayDeque::new;
+            Supplier<Object> constructor = PropertyAccessors.constructor(type);
+            return size -> (Collection<Object>) constructor.get();
+        }
+    }
+
+    private static final class MapConverter extends ContainerConverter {
+        private final IntFunction<Map<Object, Object>> factory;
+        private final Element key;
+        private final Element value;
+
+        private MapConverter(Class<?> type, Element key, Element value) {
+            super(type);
+            this.factory = factory(type);
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        boolean isDeep() {
+            return key.mapped || value.mapped;
+        }
+
+        @Override
+        Object convert(Object source, MappingContext context) {
+            if(!(source instanceof Map)) throw cannotCopy(source);
+            Map<?, ?> sources = (Map<?, ?>) source;
+            Map<Object, Object> targets = factory.apply(sources.size());
+            for (Map.Entry<?, ?> entry : sources.entrySet()) {
+                targets.put(key.convert(entry.getKey(), context), value.convert(entry.getValue(), context));
+            }
+            return targets;
+        }
+
+        /**
+         * Mapped keys are not looked up in the current map, such maps always differ.
+         */
+        @Override
+        boolean matches(Object source, Object current, ElementMatcher matcher) {
+            if(key.mapped || !(source instanceof Map) || !(current instanceof Map)) return false;
+            Map<?, ?> sources = (Map<?, ?>) source;
+            Map<?, ?> currents = (Map<?, ?>) current;
+            if(sources.size() != currents.size()) return false;
+            for (Map.Entry<?, ?> entry : sources.entrySet()) {
+                Object currentValue = currents.get(entry.getKey());
+                if(currentValue == null && !currents.containsKey(entry.getKey())) return false;
+                if(!value.matches(entry.getValue(), currentValue, matcher)) return false;
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static IntFunction<Map<Object, Object>> factory(Class<?> type){
+            if(type.isAssignableFrom(LinkedHashMap.class)) return size -> new LinkedHashMap<>(capacity(size));
+            if(type.isAssignableFrom(TreeMap.class)) return size -> new TreeMap<>();
+            if(type.isAssignableFrom(ConcurrentHashMap.class)) return ConcurrentHashMap::new;
+            Supplier<Object> constructor = PropertyAccessors.constructor(type);
+            return size -> (Map<Object, Object>) constructor.get();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Resolves the converter of a property whose getter returns another type than the property has, once
+ * per plan.
+ *
+ * <p>The converters given to the {@link Mapper.Builder#converter builder} come first, the source class,
+ * its superclasses and its interfaces are looked up in that order. Otherwise a built-in converter is used:
+ * <ul>
+ *     <li>primitive widening, which the {@link MapperEngine#METHOD_HANDLE} and {@link MapperEngine#GENERATED}
+ *     engines copy without boxing,</li>
+ *     <li>any number to {@link BigDecimal} and whole numbers to {@link BigInteger},</li>
+ *     <li>{@link Date} and {@link Timestamp} to and from {@code long},</li>
+ *     <li>any value to {@link String}, enums by name and {@link BigDecimal} without an exponent,</li>
+ *     <li>{@link String} to numbers and enums.</li>
+ * </ul>
+ * A conversion that may lose information, such as {@code long} to {@code int} or {@link BigDecimal} to
+ * {@code long}, is only done by a registered converter.
+ */
+final class ConverterRegistry {
+    private final Map<Class<?>, Map<Class<?>, Function<?, ?>>> converters = new HashMap<>();
+
+    ConverterRegistry(Map<Class<?>, Map<Class<?>, Function<?, ?>>> converters) {
+        for (Map.Entry<Class<?>, Map<Class<?>, Function<?, ?>>> entry : converters.entrySet()) {
+            this.converters.put(entry.getKey(), new HashMap<>(entry.getValue()));
+        }
+    }
+
+    /**
+     * @return the converter from the value type to the property type, or {@code null} when the value is
+     * assignable to the property or no converter is known, see {@link #isAssignable}.
+     */
+    @SuppressWarnings("unchecked")
+    Function<Object, Object> resolve(Class<?> valueType, Class<?> type){
+        Class<?> from = PropertyAccessors.box(valueType);
+        Class<?> to = PropertyAccessors.box(type);
+        if(to.isAssignableFrom(from)) return null;
+
+        Map<Class<?>, Function<?, ?>> sources = converters.get(to);
+        if(sources != null) {
+            Set<Class<?>> visited = new HashSet<>();
+            Queue<Class<?>> queue = new ArrayDeque<>();
+            queue.add(from);
+            while(!queue.isEmpty()) {
+                Class<?> curType = queue.poll();
+                if(!visited.add(curType)) continue;
+                Function<?, ?> converter = sources.get(curType);
+                if(converter != null) return (Function<Object, Object>) converter;
+                if(curType.getSuperclass() != null) queue.add(curType.getSuperclass());
+                for (Class<?> interfaceType : curType.getInterfaces()) queue.add(interfaceType);
+            }
+        }
+        return builtIn(valueType, type);
+    }
+
+    /**
+     * @return whether a value of the value type is set to a property of the type as it is, primitives
+     * and their wrappers stand for each other.
+     */
+    static boolean isAssignable(Class<?> valueType, Class<?> type){
+        return PropertyAccessors.box(type).isAssignableFrom(PropertyAccessors.box(valueType));
+    }
+
+    /**
+     * @return a converter that keeps values of the property type and converts others by their class, for
+     * sources whose values are not typed, such as maps. It remembers the converter of the last class it saw.
+     */
+    Function<Object, Object> dynamic(Class<?> type){
+        return new DynamicConverter(this, type);
+    }
+
+    /**
+     * @return whether the converter widens one primitive to another, which the engine may do without it.
+     */
+    static boolean isWidening(Function<Object, Object> converter){
+        return converter instanceof Widening;
+    }
+
+    /**
+     * @return whether the primitive value type is widened to the primitive property type by an assignment.
+     */
+    static boolean isWidening(Class<?> valueType, Class<?> type){
+        if(!valueType.isPrimitive() || !type.isPrimitive()) return false;
+        int from = rank(valueType);
+        int to = rank(type);
+        if(from < 0 || to < 0 || from >= to) return false;
+        // byte and short are not widened to char, and char is not widened to short.
+        return !(char.class.equals(type) || char.class.equals(valueType) && short.class.equals(type));
+    }
+
+    private static int rank(Class<?> type){
+        if(byte.class.equals(type)) return 0;
+        if(short.class.equals(type)) return 1;
+        if(char.class.equals(type)) return 2;
+        if(int.class.equals(type)) return 3;
+        if(long.class.equals(type)) return 4;
+        if(float.class.equals(type)) return 5;
+        if(double.class.equals(type)) return 6;
+        return -1;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Function<Object, Object> builtIn(Class<?> valueType, Class<?> type){
+        Class<?> from = PropertyAccessors.box(valueType);
+        Class<?> to = PropertyAccessors.box(type);
+        Class<?> primitiveFrom = unbox(from);
+        Class<?> primitiveTo = unbox(to);
+        if(primitiveFrom != null && primitiveTo != null) {
+            if(!isWidening(primitiveFrom, primitiveTo)) return null;
+            Function<Object, Object> convert = Character.class.equals(from)
+                    ? value -> number(to, (int) (Character) value) : value -> number(to, (Number) value);
+            return new Widening(convert);
+        }
+
+        if(String.class.equals(to)) {
+            if(BigDecimal.class.equals(from)) return value -> ((BigDecimal) value).toPlainString();
+            if(from.isEnum()) return value -> ((Enum<?>) value).name();
+            return String::valueOf;
+        }
+        if(String.class.equals(from)) {
+            if(to.isEnum()) return value -> Enum.valueOf((Class) to, (String) value);
+            if(isNumber(to)) return value -> parse(to, ((String) value).trim());
+            return null;
+        }
+        if(Date.class.isAssignableFrom(from) && Long.class.equals(to)) return value -> ((Date) value).getTime();
+        if(Long.class.equals(from)) {
+            if(Timestamp.class.equals(to)) return value -> new Timestamp((Long) value);
+            if(Date.class.equals(to)) return value -> new Date((Long) value);
+        }
+        if(Number.class.isAssignableFrom(from)
+                && (BigDecimal.class.equals(to) || BigInteger.class.equals(to) && isWhole(from)))
+            return value -> number(to, (Number) value);
+        return null;
+    }
+
+    private static boolean isNumber(Class<?> type){
+        return unbox(type) != null && !Boolean.class.equals(type) && !Character.class.equals(type)
+                || BigDecimal.class.equals(type) || BigInteger.class.equals(type);
+    }
+
+    private static boolean isWhole(Class<?> type){
+        return Byte.class.equals(type) || Short.class.equals(type) || Integer.class.equals(type)
+                || Long.class.equals(type) || BigInteger.class.equals(type)
+                || AtomicInteger.class.equals(type) || AtomicLong.class.equals(type);
+    }
+
+    /**
+     * @return the primitive of a wrapper class, or {@code null} when the class is none.
+     */
+    private static Class<?> unbox(Class<?> type){
+        Class<?> primitive = MethodType.methodType(type).unwrap().returnType();
+        return primitive.isPrimitive() ? primitive : null;
+    }
+
+    private static Object parse(Class<?> type, String value){
+        if(Integer.class.equals(type)) return Integer.valueOf(value);
+        if(Long.class.equals(type)) return Long.valueOf(value);
+        if(Double.class.equals(type)) return Double.valueOf(value);
+        if(Float.class.equals(type)) return Float.valueOf(value);
+        if(Short.class.equals(type)) return Short.valueOf(value);
+        if(Byte.class.equals(type)) return Byte.valueOf(value);
+        if(BigDecimal.class.equals(type)) return new BigDecimal(value);
+        return new BigInteger(value);
+    }
+
+    private static Object number(Class<?> type, Number value){
+        if(Integer.class.equals(type)) return value.intValue();
+        if(Long.class.equals(type)) return value.longValue();
+        if(Double.class.equals(type)) return value.doubleValue();
+        if(Float.class.equals(type)) return value.floatValue();
+        if(Short.class.equals(type)) return value.shortValue();
+        if(Byte.class.equals(type)) return value.byteValue();
+        if(BigDecimal.class.equals(type))
+            return value instanceof BigDecimal ? value : value instanceof BigInteger
+                    ? new BigDecimal((BigInteger) value) : new BigDecimal(value.toString());
+        if(BigInteger.class.equals(type))
+            return value instanceof BigInteger ? value : value instanceof BigDecimal
+                    ? ((BigDecimal) value).toBigInteger() : BigInteger.valueOf(value.longValue());
+        throw new MapperException(String.format("Cannot convert %s to %s", value.getClass().getName(), type.getName()));
+    }
+
+    private static final class DynamicConverter implements Function<Object, Object> {
+        private final ConverterRegistry registry;
+        private final Class<?> type;
+        private volatile Resolved last;
+
+        private DynamicConverter(ConverterRegistry registry, Class<?> type) {
+            this.registry = registry;
+            this.type = PropertyAccessors.box(type);
+        }
+
+        @Override
+        public Object apply(Object value) {
+            if(type.isInstance(value)) return value;
+            Resolved resolved = last;
+            if(resolved == null || resolved.valueType != value.getClass()) {
+                Function<Object, Object> converter = registry.resolve(value.getClass(), type);
+                if(converter == null) throw new MapperException(String.format("Cannot convert %s to %s",
+                        value.getClass().getName(), type.getName()));
+                last = resolved = new Resolved(value.getClass(), converter);
+            }
+            return resolved.converter.apply(value);
+        }
+    }
+
+    private static final class Resolved {
+        private final Class<?> valueType;
+        private final Function<Object, Object> converter;
+
+        private Resolved(Class<?> valueType, Function<Object, Object> converter) {
+            this.valueType = valueType;
+            this.converter = converter;
+        }
+    }
+
+    /**
+     * The boxed form of a primitive widening, for engines that copy through boxed accessors.
+     */
+    private static final class Widening implements Function<Object, Object> {
+        private final Function<Object, Object> convert;
+
+        private Widening(Function<Object, Object> convert) {
+            this.convert = convert;
+        }
+
+        @Override
+        public Object apply(Object value) {
+            return convert.apply(value);
+        }
+    }
+}
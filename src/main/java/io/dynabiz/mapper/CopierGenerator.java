@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Emits a {@link GeneratedCopier} subclass for one class pair with ASM.
+ *
+ * <p>Every unfiltered property whose getter type matches its setter becomes a plain
+ * {@code target.setX(source.getX())} call, so primitives are never boxed and the JIT can inline the
+ * whole copy. The other properties call back into {@link GeneratedCopier#copyProperty}.
+ */
+final class CopierGenerator implements Opcodes {
+    private static final String PACKAGE = "io/dynabiz/mapper/generated/";
+    private static final String SUPER_NAME = Type.getInternalName(GeneratedCopier.class);
+    private static final String COPY_DESCRIPTOR = "(Ljava/lang/Object;Ljava/lang/Object;Lio/dynabiz/mapper/MappingContext;)V";
+    private static final String COPY_PROPERTY_DESCRIPTOR = "(ILjava/lang/Object;Ljava/lang/Object;Lio/dynabiz/mapper/MappingContext;)V";
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private CopierGenerator() {
+    }
+
+    static GeneratedCopier generate(Class<?> targetType, Class<?> sourceType, MappedProperty[] properties){
+        if(!isPublic(targetType) || !isPublic(sourceType) || !hasDirectProperty(targetType, properties)) return null;
+
+        String className = PACKAGE + targetType.getSimpleName() + "$" + sourceType.getSimpleName()
+                + "$Copier" + COUNTER.incrementAndGet();
+        String targetName = Type.getInternalName(targetType);
+        String sourceName = Type.getInternalName(sourceType);
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, className, null, SUPER_NAME, null);
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, SUPER_NAME, "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(ACC_PUBLIC, "copy", COPY_DESCRIPTOR, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, targetName);
+        mv.visitVarInsn(ASTORE, 4);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitTypeInsn(CHECKCAST, sourceName);
+        mv.visitVarInsn(ASTORE, 5);
+        for (int i = 0; i < properties.length; i++) {
+            MappedProperty property = properties[i];
+            Method setter = findSetter(targetType, property);
+            if(isDirect(property, setter)) {
+                mv.visitVarInsn(ALOAD, 4);
+                mv.visitVarInsn(ALOAD, 5);
+                invoke(mv, sourceType, sourceName, property.getGetter());
+                widen(mv, property.getGetter().getReturnType(), setter.getParameterTypes()[0]);
+                invoke(mv, targetType, targetName, setter);
+                Class<?> result = setter.getReturnType();
+                if(!void.class.equals(result))
+                    mv.visitInsn(long.class.equals(result) || double.class.equals(result) ? POP2 : POP);
+            }
+            else {
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitLdcInsn(i);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitVarInsn(ALOAD, 3);
+                mv.visitMethodInsn(INVOKEVIRTUAL, className, "copyProperty", COPY_PROPERTY_DESCRIPTOR, false);
+            }
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+
+        Class<?> copierClass = new CopierClassLoader(targetType, sourceType)
+                .define(className.replace('/', '.'), cw.toByteArray());
+        try {
+            return (GeneratedCopier) copierClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new MapperException(e);
+        }
+    }
+
+    private static void invoke(MethodVisitor mv, Class<?> owner, String ownerName, Method method){
+        boolean isInterface = owner.isInterface();
+        mv.visitMethodInsn(isInterface ? INVOKEINTERFACE : INVOKEVIRTUAL, ownerName,
+                method.getName(), Type.getMethodDescriptor(method), isInterface);
+    }
+
+    private static boolean hasDirectProperty(Class<?> targetType, MappedProperty[] properties){
+        for (MappedProperty property : properties) if(isDirect(property, findSetter(targetType, property))) return true;
+        return false;
+    }
+
+    /**
+     * Properties declared by a {@link GeneratedMapper} only know their setter by name.
+     */
+    private static Method findSetter(Class<?> targetType, MappedProperty property){
+        if(property.getSetter() != null) return property.getSetter();
+        for (Method method : targetType.getMethods()) {
+            if(method.getName().equals(property.getSetterName()) && 1 == method.getParameterCount()) return method;
+        }
+        return null;
+    }
+
+    private static boolean isDirect(MappedProperty property, Method setter){
+        Method getter = property.getGetter();
+        return property.isCopiedAsIs()
+                && setter != null
+                && getter != null
+                && isCallable(getter)
+                && isCallable(setter)
+                && (getter.getReturnType().equals(setter.getParameterTypes()[0])
+                    || ConverterRegistry.isWidening(getter.getReturnType(), setter.getParameterTypes()[0]));
+    }
+
+    /**
+     * Emits the primitive widening of the value on the stack, {@code byte}, {@code short} and {@code char}
+     * already are {@code int} values on the stack.
+     */
+    private static void widen(MethodVisitor mv, Class<?> from, Class<?> to){
+        if(from.equals(to)) return;
+        boolean isInt = !long.class.equals(from) && !float.class.equals(from) && !double.class.equals(from);
+        if(long.class.equals(to)) mv.visitInsn(I2L);
+        else if(float.class.equals(to)) mv.visitInsn(isInt ? I2F : L2F);
+        else if(double.class.equals(to)) mv.visitInsn(isInt ? I2D : long.class.equals(from) ? L2D : F2D);
+    }
+
+    /**
+     * Only public instance methods without checked exceptions can be called from generated code
+     * the same way {@link Method#invoke} would call them.
+     */
+    private static boolean isCallable(Method method){
+        int modifiers = method.getModifiers();
+        if(!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers)) return false;
+        for (Class<?> exceptionType : method.getExceptionTypes()) {
+            if(!RuntimeException.class.isAssignableFrom(exceptionType) && !Error.class.isAssignableFrom(exceptionType))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isPublic(Class<?> type){
+        return Modifier.isPublic(type.getModifiers()) && !type.isArray() && !type.isPrimitive();
+    }
+
+    /**
+     * Sees the target class first, then the source class, and always links the mapper classes
+     * against the ones of this library.
+     */
+    private static final class CopierClassLoader extends ClassLoader {
+        private final ClassLoader sourceLoader;
+
+        private CopierClassLoader(Class<?> targetType, Class<?> sourceType) {
+            super(targetType.getClassLoader());
+            this.sourceLoader = sourceType.getClassLoader();
+        }
+
+        private Class<?> define(String name, byte[] bytes){
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if(name.startsWith("io.dynabiz.mapper.") && !name.startsWith(PACKAGE.replace('/', '.')))
+                return Class.forName(name, false, GeneratedCopier.class.getClassLoader());
+            return super.loadClass(name, resolve);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if(sourceLoader == null) throw new ClassNotFoundException(name);
+            return Class.forName(name, false, sourceLoader);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Resolves the {@code @Mapped(filter = ...)} instances of a {@link Mapper} once per plan.
+ *
+ * <p>A filter class is looked up in the instances given to the builder first, then handed to the filter
+ * factory, e.g. a DI container, and is otherwise instantiated through its no-argument constructor. The
+ * instantiated filters are shared by all mappers, so every filter must be thread safe.
+ */
+final class FilterRegistry {
+    private static final ClassValue<Function<Object, Object>> SHARED = new ClassValue<Function<Object, Object>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected Function<Object, Object> computeValue(Class<?> filterClass) {
+            if(!Function.class.isAssignableFrom(filterClass))
+                throw new MapperException(String.format("Filter %s must implement %s",
+                        filterClass.getName(), Function.class.getName()));
+            return (Function<Object, Object>) PropertyAccessors.constructor(filterClass).get();
+        }
+    };
+
+    private final Map<Class<?>, Function<?, ?>> filters;
+    private final Function<Class<?>, ? extends Function<?, ?>> factory;
+
+    FilterRegistry(Map<Class<?>, Function<?, ?>> filters, Function<Class<?>, ? extends Function<?, ?>> factory) {
+        this.filters = new HashMap<>(filters);
+        this.factory = factory;
+    }
+
+    @SuppressWarnings("unchecked")
+    Function<Object, Object> resolve(Class<?> filterClass){
+        Function<?, ?> filter = filters.get(filterClass);
+        if(filter == null && factory != null) filter = factory.apply(filterClass);
+        return filter != null ? (Function<Object, Object>) filter : SHARED.get(filterClass);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+/**
+ * Base class of the copy routines that {@link CopierGenerator} emits for a {@link MappingPlan}.
+ *
+ * <p>A generated copier calls the getters and setters of its class pair directly. It is public only
+ * because the generated classes live in their own class loader, it is not meant to be extended by hand.
+ */
+public abstract class GeneratedCopier {
+    private static final boolean GENERATOR_PRESENT = checkGenerator();
+
+    private MappedProperty[] properties;
+
+    protected GeneratedCopier() {
+    }
+
+    public abstract void copy(Object target, Object source, MappingContext context);
+
+    /**
+     * Copies a property that could not be emitted as a direct call, e.g. a filtered or nested one.
+     */
+    protected final void copyProperty(int index, Object target, Object source, MappingContext context){
+        properties[index].apply(target, source, context);
+    }
+
+    /**
+     * @return a copier for the given properties, or {@code null} when ASM is missing or the class pair
+     * cannot be accessed from generated code.
+     */
+    static GeneratedCopier generate(Class<?> targetType, Class<?> sourceType, MappedProperty[] properties){
+        if(!GENERATOR_PRESENT) return null;
+        try {
+            GeneratedCopier copier = CopierGenerator.generate(targetType, sourceType, properties);
+            if(copier != null) copier.properties = properties;
+            return copier;
+        } catch (LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    static boolean isGeneratorPresent(){
+        return GENERATOR_PRESENT;
+    }
+
+    private static boolean checkGenerator(){
+        try {
+            Class.forName("org.objectweb.asm.ClassWriter", false, GeneratedCopier.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
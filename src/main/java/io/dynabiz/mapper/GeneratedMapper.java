@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Base class of the mappers that {@link MappedProcessor} generates at
+ * compile time for classes with {@code @Mapped} members or {@code @MappedConfig}.
+ *
+ * <p>A generated mapper declares the mapped properties of its class in its constructor and writes them
+ * through plain setter calls, so {@link ObjectMapper} does not need to scan annotations or look up
+ * setters at runtime. It is found by name, see {@link #getMapperName}, and only used when its type
+ * argument is the class it was looked up for.
+ *
+ * @param <T> the class the mapper was generated for
+ */
+public abstract class GeneratedMapper<T> {
+    private final List<MappedDeclaration> declarations = new ArrayList<>();
+
+    protected GeneratedMapper() {
+    }
+
+    /**
+     * Declares a mapped property, in the order the class declares it.
+     *
+     * @param name          the property name in the target class
+     * @param sourceName    the property name read from the source
+     * @param type          the property type
+     * @param sourceClasses the source classes the property is restricted to, or {@code null}
+     * @param filterClass   the filter applied to the value, or {@code null}
+     * @param setterName    the name of the set method
+     * @param setter        writes the value to the target
+     */
+    protected final void property(String name, String sourceName, Class<?> type, Class[] sourceClasses,
+                                  Class filterClass, String setterName, BiConsumer<T, Object> setter){
+        property(name, sourceName, type, sourceClasses, filterClass, setterName, setter, CollectionMode.AUTO);
+    }
+
+    /**
+     * Declares a mapped property with a {@link Mapped#collection} mode other than the default.
+     */
+    @SuppressWarnings("unchecked")
+    protected final void property(String name, String sourceName, Class<?> type, Class[] sourceClasses,
+                                  Class filterClass, String setterName, BiConsumer<T, Object> setter,
+                                  CollectionMode collectionMode){
+        declarations.add(new MappedDeclaration(name, sourceName, type, sourceClasses, filterClass, setterName,
+                null, (BiConsumer<Object, Object>) (BiConsumer) setter, null, null, collectionMode));
+    }
+
+    /**
+     * Declares a mapped property that is written directly to its field, see {@link Mapped#fieldAccess}.
+     *
+     * @param declaringType the class declaring the field
+     * @param name          the field name
+     */
+    protected final void field(Class<?> declaringType, String name, String sourceName, Class[] sourceClasses,
+                               Class filterClass){
+        field(declaringType, name, sourceName, sourceClasses, filterClass, CollectionMode.AUTO);
+    }
+
+    protected final void field(Class<?> declaringType, String name, String sourceName, Class[] sourceClasses,
+                               Class filterClass, CollectionMode collectionMode){
+        Field field;
+        try {
+            field = declaringType.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw new MapperException(e);
+        }
+        declarations.add(new MappedDeclaration(name, sourceName, field.getType(), sourceClasses, filterClass, null,
+                null, null, MappedDeclaration.writableField(field), field.getGenericType(), collectionMode));
+    }
+
+    MappedDeclaration[] getDeclarations() {
+        return declarations.toArray(new MappedDeclaration[0]);
+    }
+
+    /**
+     * @return the name of the generated mapper for a class, e.g. {@code com.foo.Order$Line_$Mapper}
+     * for the nested class {@code com.foo.Order.Line}. The binary name is kept as it is, so the mappers of
+     * {@code Order.Line} and of a class {@code Order_Line} do not collide.
+     */
+    public static String getMapperName(String binaryName){
+        return binaryName + "_$Mapper";
+    }
+
+    /**
+     * @return the generated mapper of the given class, or {@code null} if it was not generated.
+     */
+    static GeneratedMapper<?> find(Class<?> type){
+        if(type.isPrimitive() || type.isArray() || type.isAnonymousClass() || type.isLocalClass()) return null;
+        Class<?> mapperClass;
+        try {
+            mapperClass = Class.forName(getMapperName(type.getName()), true, type.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+        if(!GeneratedMapper.class.isAssignableFrom(mapperClass) || !isMapperOf(mapperClass, type)) return null;
+        try {
+            return (GeneratedMapper<?>) mapperClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new MapperException(e);
+        }
+    }
+
+    /**
+     * @return whether the mapper class was generated for the given class, by its type argument.
+     */
+    private static boolean isMapperOf(Class<?> mapperClass, Class<?> type){
+        Type superType = mapperClass.getGenericSuperclass();
+        if(!(superType instanceof ParameterizedType)) return false;
+        ParameterizedType parameterized = (ParameterizedType) superType;
+        return GeneratedMapper.class.equals(parameterized.getRawType())
+                && type.equals(parameterized.getActualTypeArguments()[0]);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Reads and writes the properties of a {@link Map} source or target of a {@link MappingPlan}, keyed by
+ * the source names of the properties, that is by their {@code @Mapped(name = ...)} aliases.
+ */
+final class MapAccessors {
+
+    private MapAccessors() {
+    }
+
+    /**
+     * @return the index of the property source names, or {@code null} when two properties share a name.
+     */
+    static NameIndex index(MappedProperty[] properties){
+        String[] names = new String[properties.length];
+        for (int i = 0; i < properties.length; i++) names[i] = properties[i].getSourceName();
+        return NameIndex.of(names);
+    }
+
+    /**
+     * An open addressing table from property source names to property indexes, built once per plan. A
+     * lookup hashes the key once, which a {@link String} caches, and compares it with at most a few names.
+     */
+    static final class NameIndex {
+        private final String[] names;
+        private final int[] indexes;
+        private final int mask;
+
+        private NameIndex(String[] names, int[] indexes) {
+            this.names = names;
+            this.indexes = indexes;
+            this.mask = names.length - 1;
+        }
+
+        private static NameIndex of(String[] propertyNames){
+            int size = Integer.highestOneBit(Math.max(1, propertyNames.length) * 2 - 1) << 1;
+            String[] names = new String[size];
+            int[] indexes = new int[size];
+            for (int i = 0; i < propertyNames.length; i++) {
+                int slot = slot(propertyNames[i], size - 1);
+                while (names[slot] != null) {
+                    if(names[slot].equals(propertyNames[i])) return null;
+                    slot = (slot + 1) & (size - 1);
+                }
+                names[slot] = propertyNames[i];
+                indexes[slot] = i;
+            }
+            return new NameIndex(names, indexes);
+        }
+
+        /**
+         * @return the index of the property with the given source name, or {@code -1} when there is none.
+         */
+        int indexOf(Object name){
+            if(!(name instanceof String)) return -1;
+            for (int slot = slot(name, mask); names[slot] != null; slot = (slot + 1) & mask) {
+                if(names[slot].equals(name)) return indexes[slot];
+            }
+            return -1;
+        }
+
+        private static int slot(Object name, int mask){
+            int hash = name.hashCode();
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+
+    /**
+     * Writes the mapped properties of a bean to a map, keyed by their source names.
+     */
+    static final class Export {
+        private final String[] keys;
+        private final Function<Object, Object>[] readers;
+
+        Export(String[] keys, Function<Object, Object>[] readers) {
+            this.keys = keys;
+            this.readers = readers;
+        }
+
+        /**
+         * @return a map that holds every property without rehashing.
+         */
+        Map<String, Object> newMap(){
+            return new LinkedHashMap<>(ContainerConverter.capacity(keys.length));
+        }
+
+        void write(Map<String, Object> target, Object source){
+            for (int i = 0; i < keys.length; i++) target.put(keys[i], readers[i].apply(source));
+        }
+    }
+}
@@ -30,6 +30,17 @@ import java.lang.annotation.*;
  *
  * <p>The {@link #name} is optional and represents a new name for a field.
  *
+ * <p>{@link #targetClass} restricts the property to sources that are instances of the listed classes,
+ * including their subclasses and proxies. Other sources leave it unmapped.
+ *
+ * <p>With {@link #fieldAccess} a mapped field is written directly instead of through its setter, and read
+ * from the source field of the same name when the source has one, otherwise through the getter.
+ * It has no effect on mapped methods. Fields are read and written through reflection, which the JIT does
+ * not inline like the accessors spun for public getters and setters, so prefer them on hot paths.
+ *
+ * <p>The {@link #collection} mode decides whether array, collection and map properties are set as they are,
+ * copied, or copied with their elements mapped, see {@link CollectionMode}.
+ *
  */
 @Documented
 @Retention(RetentionPolicy.RUNTIME)
@@ -38,4 +49,6 @@ public @interface Mapped {
     String name() default "";
     Class[] targetClass() default {};
     Class filter() default void.class;
+    boolean fieldAccess() default false;
+    CollectionMode collection() default CollectionMode.AUTO;
 }
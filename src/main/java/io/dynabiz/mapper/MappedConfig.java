@@ -26,7 +26,8 @@ package io.dynabiz.mapper;
 import java.lang.annotation.*;
 
 /**
- *
+ * Defaults for the {@code @Mapped} members of a class. {@link #fieldAccess} turns on field access for all
+ * mapped fields, see {@link Mapped#fieldAccess}.
  */
 @Documented
 @Retention(RetentionPolicy.RUNTIME)
@@ -34,4 +35,5 @@ import java.lang.annotation.*;
 public @interface MappedConfig {
     Class[] targetClass() default {};
     Class filter() default void.class;
+    boolean fieldAccess() default false;
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.lang.annotation.*;
+
+/**
+ * {@code @MappedCreator} marks the constructor or static method {@code mapFrom} creates a target with, so
+ * the target may keep its mapped properties in final fields.
+ *
+ * <p>A constructor or a static factory returning the target gets the values of the mapped properties
+ * named by {@link #value}, in the order of its parameters. When the names are left out they are the
+ * parameter names, which requires classes compiled with {@code -parameters}.
+ *
+ * <p>A static method without parameters returning another class is a builder factory. The properties
+ * named by {@link #value}, or every mapped property without a setter when it is left out, are passed to
+ * the builder method named like the property, or {@code set} or {@code with} followed by its name, and
+ * the target is then created by the {@code build()} method.
+ *
+ * <p>The mapped properties that are not passed to the creator are set afterwards as usual.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.CONSTRUCTOR, ElementType.METHOD})
+public @interface MappedCreator {
+    String[] value() default {};
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@code @Mapped} property as declared by a single class, before it is bound to a source class.
+ *
+ * <p>Declarations come from a {@link GeneratedMapper} when the class was compiled with the mapped
+ * processor, otherwise from {@link #scan scanning} the annotations of the class.
+ */
+final class MappedDeclaration {
+    private final String name;
+    private final String sourceName;
+    private final Class type;
+    private final Class[] sourceClasses;
+    private final Class filterClass;
+    private final String setterName;
+    private final Method setter;
+    private final BiConsumer<Object, Object> writer;
+    private final Field field;
+    private final Type genericType;
+    private final CollectionMode collectionMode;
+
+    MappedDeclaration(String name, String sourceName, Class type, Class[] sourceClasses, Class filterClass,
+                      String setterName, Method setter, BiConsumer<Object, Object> writer, Field field,
+                      Type genericType, CollectionMode collectionMode) {
+        this.name = name;
+        this.sourceName = sourceName;
+        this.type = type;
+        this.sourceClasses = sourceClasses;
+        this.filterClass = filterClass;
+        this.setterName = setterName;
+        this.setter = setter;
+        this.writer = writer;
+        this.field = field;
+        this.genericType = genericType;
+        this.collectionMode = collectionMode;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getSourceName() {
+        return sourceName;
+    }
+
+    Class getType() {
+        return type;
+    }
+
+    Class[] getSourceClasses() {
+        return sourceClasses;
+    }
+
+    Class getFilterClass() {
+        return filterClass;
+    }
+
+    String getSetterName() {
+        return setterName;
+    }
+
+    /**
+     * @return the reflected setter, or {@code null} when the declaration was generated.
+     */
+    Method getSetter() {
+        return setter;
+    }
+
+    /**
+     * @return the generated setter accessor, or {@code null} when the declaration was scanned.
+     */
+    BiConsumer<Object, Object> getWriter() {
+        return writer;
+    }
+
+    /**
+     * @return the field written directly, or {@code null} when the property is written through its setter.
+     */
+    Field getField() {
+        return field;
+    }
+
+    /**
+     * @return the generic property type, or {@code null} when a generated declaration did not resolve it.
+     */
+    Type getGenericType() {
+        return genericType;
+    }
+
+    CollectionMode getCollectionMode() {
+        return collectionMode;
+    }
+
+    boolean hasWriter() {
+        return setter != null || writer != null || field != null;
+    }
+
+    /**
+     * Reads the {@code @Mapped} fields and setters declared by the given class, not by its superclasses.
+     */
+    static MappedDeclaration[] scan(Class<?> type){
+        MappedConfig config = type.getAnnotation(MappedConfig.class);
+        List<MappedDeclaration> declarations = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            Mapped mapped = field.getAnnotation(Mapped.class);
+            if(mapped == null) continue;
+            if(mapped.fieldAccess() || config != null && config.fieldAccess())
+                declarations.add(declare(field.getType(), field.getGenericType(), field.getName(), config, mapped,
+                        null, writableField(field)));
+            else
+                declarations.add(declare(field.getType(), field.getGenericType(), field.getName(), config, mapped,
+                        findSetter(field.getName(), type), null));
+        }
+
+        for (Method method : type.getDeclaredMethods()) {
+            Mapped mapped = method.getAnnotation(Mapped.class);
+            if(mapped == null) continue;
+            if(1 != method.getParameterCount())
+                throw new MapperException(String.format("Mapped method %s must take exactly one parameter", method));
+            declarations.add(declare(method.getParameterTypes()[0], method.getGenericParameterTypes()[0],
+                    getFieldNameFromSetter(method.getName()), config, mapped, method, null));
+        }
+        return declarations.toArray(new MappedDeclaration[0]);
+    }
+
+    private static MappedDeclaration declare(Class type, Type genericType, String name, MappedConfig config,
+                                             Mapped mapped, Method setter, Field field){
+        return new MappedDeclaration(
+                name,
+                mapped.name().isEmpty() ? name : mapped.name(),
+                type,
+                mapped.targetClass().length == 0 ?
+                        (config == null ?
+                                null :
+                                config.targetClass().length == 0 ?
+                                        null :
+                                        config.targetClass()) :
+                        mapped.targetClass(),
+                void.class.equals(mapped.filter()) ?
+                        (config == null ?
+                                null :
+                                void.class.equals(config.filter()) ?
+                                        null :
+                                        config.filter()) :
+                        mapped.filter(),
+                setter == null ? null : setter.getName(),
+                setter == null ? null : PropertyAccessors.makeAccessible(setter),
+                null,
+                field,
+                genericType,
+                mapped.collection()
+        );
+    }
+
+    /**
+     * @return the field made accessible, if it can be written directly.
+     */
+    static Field writableField(Field field){
+        if(Modifier.isFinal(field.getModifiers()) || Modifier.isStatic(field.getModifiers()))
+            throw new MapperException(String.format("Mapped field %s must not be final or static", field));
+        if(!PropertyAccessors.canAccess(PropertyAccessors.makeAccessible(field)))
+            throw new MapperException(String.format("Cannot access mapped field %s, its package must be open", field));
+        return field;
+    }
+
+    private static Method findSetter(String name, Class objType){
+        String setterName = "set" + capitalize(name);
+        Method[] methods = objType.getMethods();
+        for (Method method : methods) {
+            if(method.getName().equals(setterName) && 1 == method.getParameterCount()) return method;
+        }
+        return null;
+    }
+
+    static String capitalize(String name){
+        if(name.length() > 1 && Character.isLowerCase(name.charAt(0)) && Character.isLowerCase(name.charAt(1))) {
+            char[] chars = name.toCharArray();
+            chars[0]-=32;
+            name = new String(chars);
+        }
+        return name;
+    }
+
+    static String getFieldNameFromSetter(String methodName){
+        if(methodName.startsWith("set")) methodName = methodName.substring(3);
+        if(methodName.startsWith("is")) methodName = methodName.substring(2);
+
+        if(Character.isLowerCase(methodName.charAt(0)))
+            return methodName;
+        else{
+            char[] chars = methodName.toCharArray();
+            chars[0]+=32;
+            return new String(chars);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * The mapped properties of the classes {@link MappedProcessor} saw, written at build time to the
+ * {@value #RESOURCE} resource of each compiled module and read once per class loader.
+ *
+ * <p>A class of the index is declared without reading its annotation values: its generated mapper is
+ * loaded directly, or its setters and fields are looked up by their exact name and type. Each entry keeps
+ * a {@link #fingerprint} of the annotated members of its class, so an entry written before the class was
+ * changed is ignored. Classes missing from the index, or whose entry no longer matches the class, are
+ * scanned as before.
+ *
+ * <p>The format is a magic number and version, then per class its binary name, whether a mapper was
+ * generated for it, its fingerprint and its properties: how they are written, name, source name, type,
+ * setter name and parameter type, source classes, filter and collection mode. Types are stored as binary
+ * names.
+ */
+final class MappedIndex {
+    static final String RESOURCE = "META-INF/dynabiz/mapped.idx";
+
+    /**
+     * How a property is written: through a setter, directly to its field, or only by the creator of its class.
+     */
+    static final byte SETTER = 0;
+    static final byte FIELD = 1;
+    static final byte CREATOR = 2;
+
+    private static final int MAGIC = 0x444D4958;
+    private static final int VERSION = 2;
+    private static final MappedIndex EMPTY = new MappedIndex(Collections.<String, Entry>emptyMap());
+
+    /**
+     * Guarded by itself. Indexes hold names only, so they do not keep their class loader reachable.
+     */
+    private static final Map<ClassLoader, MappedIndex> INDEXES = new WeakHashMap<>();
+
+    private final Map<String, Entry> entries;
+
+    private MappedIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @return the merged indexes of every module the class loader sees, read on first use.
+     */
+    static MappedIndex of(ClassLoader loader){
+        if(loader == null) return EMPTY;
+        synchronized (INDEXES) {
+            MappedIndex index = INDEXES.get(loader);
+            if(index == null) INDEXES.put(loader, index = load(loader));
+            return index;
+        }
+    }
+
+    private static MappedIndex load(ClassLoader loader){
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        try {
+            Enumeration<URL> resources = loader.getResources(RESOURCE);
+            while (resources.hasMoreElements()) {
+                try (InputStream in = new BufferedInputStream(resources.nextElement().openStream())) {
+                    read(in, entries);
+                }
+            }
+        } catch (IOException e) {
+            throw new MapperException(e);
+        }
+        return entries.isEmpty() ? EMPTY : new MappedIndex(entries);
+    }
+
+    Entry get(String className){
+        return entries.get(className);
+    }
+
+    Set<String> getClassNames(){
+        return entries.keySet();
+    }
+
+    static void write(OutputStream out, Map<String, Entry> entries) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            data.writeUTF(entry.getKey());
+            data.writeBoolean(entry.getValue().generated);
+            data.writeInt(entry.getValue().fingerprint);
+            data.writeShort(entry.getValue().properties.size());
+            for (Property property : entry.getValue().properties) {
+                data.writeByte(property.kind);
+                data.writeUTF(property.name);
+                data.writeUTF(property.sourceName);
+                data.writeUTF(property.type);
+                data.writeUTF(property.setterName);
+                data.writeUTF(property.setterType);
+                data.writeShort(property.sourceClasses.length);
+                for (String sourceClass : property.sourceClasses) data.writeUTF(sourceClass);
+                data.writeUTF(property.filter);
+                data.writeUTF(property.collectionMode);
+            }
+        }
+        data.flush();
+    }
+
+    private static void read(InputStream in, Map<String, Entry> entries) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if(data.readInt() != MAGIC || data.readShort() != VERSION)
+            throw new MapperException("Unknown format of " + RESOURCE + ", rebuild the module that contains it");
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            String className = data.readUTF();
+            boolean generated = data.readBoolean();
+            int fingerprint = data.readInt();
+            int size = data.readShort();
+            List<Property> properties = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                byte kind = data.readByte();
+                String name = data.readUTF();
+                String sourceName = data.readUTF();
+                String type = data.readUTF();
+                String setterName = data.readUTF();
+                String setterType = data.readUTF();
+                String[] sourceClasses = new String[data.readShort()];
+                for (int k = 0; k < sourceClasses.length; k++) sourceClasses[k] = data.readUTF();
+                properties.add(new Property(kind, name, sourceName, type, setterName, setterType, sourceClasses,
+                        data.readUTF(), data.readUTF()));
+            }
+            entries.putIfAbsent(className, new Entry(generated, fingerprint, properties));
+        }
+    }
+
+    /**
+     * @return the declarations of the class, or {@code null} when the entry does not match it anymore.
+     */
+    static MappedDeclaration[] declarations(Class<?> type, Entry entry){
+        if(entry.fingerprint != fingerprint(type)) return null;
+        ClassLoader loader = type.getClassLoader();
+        MappedDeclaration[] declarations = new MappedDeclaration[entry.properties.size()];
+        try {
+            for (int i = 0; i < declarations.length; i++) {
+                Property property = entry.properties.get(i);
+                Class<?> propertyType = resolve(property.type, loader);
+                Class[] sourceClasses = null;
+                if(property.sourceClasses.length > 0) {
+                    sourceClasses = new Class[property.sourceClasses.length];
+                    for (int j = 0; j < sourceClasses.length; j++) sourceClasses[j] = resolve(property.sourceClasses[j], loader);
+                }
+                Class<?> filterClass = property.filter.isEmpty() ? null : resolve(property.filter, loader);
+                CollectionMode collectionMode = CollectionMode.valueOf(property.collectionMode);
+
+                Method setter = null;
+                Field field = null;
+                Type genericType;
+                if(property.kind == SETTER) {
+                    setter = PropertyAccessors.makeAccessible(
+                            type.getMethod(property.setterName, resolve(property.setterType, loader)));
+                    genericType = setter.getGenericParameterTypes()[0];
+                }
+                else {
+                    Field declared = type.getDeclaredField(property.name);
+                    if(property.kind == FIELD) field = MappedDeclaration.writableField(declared);
+                    genericType = declared.getGenericType();
+                }
+                declarations[i] = new MappedDeclaration(property.name, property.sourceName, propertyType, sourceClasses,
+                        filterClass, setter == null ? null : setter.getName(), setter, null, field, genericType,
+                        collectionMode);
+            }
+        } catch (ClassNotFoundException | NoSuchMethodException | NoSuchFieldException | IllegalArgumentException e) {
+            return null;
+        }
+        return declarations;
+    }
+
+    /**
+     * @return the fingerprint of the {@code @Mapped} fields and methods the class declares.
+     */
+    static int fingerprint(Class<?> type){
+        List<String> members = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            if(field.isAnnotationPresent(Mapped.class)) members.add(field(field.getName()));
+        }
+        for (Method method : type.getDeclaredMethods()) {
+            if(!method.isSynthetic() && method.isAnnotationPresent(Mapped.class)) members.add(method(method.getName()));
+        }
+        return fingerprint(members);
+    }
+
+    /**
+     * @param members the {@link #field} and {@link #method} keys of the annotated members, in any order
+     * @return the same value for the same members at build time and at runtime.
+     */
+    static int fingerprint(List<String> members){
+        List<String> sorted = new ArrayList<>(members);
+        Collections.sort(sorted);
+        return sorted.hashCode();
+    }
+
+    static String field(String name){
+        return "field " + name;
+    }
+
+    static String method(String name){
+        return "method " + name;
+    }
+
+    private static Class<?> resolve(String name, ClassLoader loader) throws ClassNotFoundException {
+        switch (name) {
+            case "boolean": return boolean.class;
+            case "byte": return byte.class;
+            case "char": return char.class;
+            case "short": return short.class;
+            case "int": return int.class;
+            case "long": return long.class;
+            case "float": return float.class;
+            case "double": return double.class;
+            default: return Class.forName(name, false, loader);
+        }
+    }
+
+    static final class Entry {
+        private final boolean generated;
+        private final int fingerprint;
+        private final List<Property> properties;
+
+        /**
+         * @param generated   whether a {@link GeneratedMapper} was generated for the class
+         * @param fingerprint the {@link #fingerprint} of the annotated members of the class
+         */
+        Entry(boolean generated, int fingerprint, List<Property> properties) {
+            this.generated = generated;
+            this.fingerprint = fingerprint;
+            this.properties = properties;
+        }
+
+        boolean isGenerated() {
+            return generated;
+        }
+    }
+
+    static final class Property {
+        private final byte kind;
+        private final String name;
+        private final String sourceName;
+        private final String type;
+        private final String setterName;
+        private final String setterType;
+        private final String[] sourceClasses;
+        private final String filter;
+        private final String collectionMode;
+
+        /**
+         * @param setterName the setter name, empty unless the kind is {@link #SETTER}
+         * @param setterType the binary name of the setter parameter type, empty unless the kind is {@link #SETTER}
+         * @param filter     the binary name of the filter class, empty when there is no filter
+         */
+        Property(byte kind, String name, String sourceName, String type, String setterName, String setterType,
+                 String[] sourceClasses, String filter, String collectionMode) {
+            this.kind = kind;
+            this.name = name;
+            this.sourceName = sourceName;
+            this.type = type;
+            this.setterName = setterName;
+            this.setterType = setterType;
+            this.sourceClasses = sourceClasses;
+            this.filter = filter;
+            this.collectionMode = collectionMode;
+        }
+    }
+}
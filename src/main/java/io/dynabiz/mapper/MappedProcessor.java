@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * Generates a {@link GeneratedMapper} for every class that declares {@code @Mapped} fields or setters,
+ * or is annotated with {@code @MappedConfig}.
+ *
+ * <p>The processor resolves names, aliases, source class restrictions, filters and setters with the
+ * same rules {@link MappedDeclaration#scan} applies at runtime. A class it cannot handle, e.g. a
+ * private one or one whose setter is not visible yet, gets a warning and keeps the runtime discovery.
+ * So does a class passing properties without setters to its {@link MappedCreator}, silently.
+ *
+ * <p>Once all rounds are processed, the properties of every class are also written to a {@link MappedIndex},
+ * so the runtime declares them without reading annotations.
+ */
+@SupportedAnnotationTypes({"io.dynabiz.mapper.Mapped", "io.dynabiz.mapper.MappedConfig"})
+public class MappedProcessor extends AbstractProcessor {
+    private final Map<String, MappedIndex.Entry> index = new LinkedHashMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> types = new LinkedHashSet<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(Mapped.class)) {
+            types.add((TypeElement) element.getEnclosingElement());
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(MappedConfig.class)) {
+            if(element instanceof TypeElement) types.add((TypeElement) element);
+        }
+        for (TypeElement type : types) {
+            generate(type);
+        }
+        if(roundEnv.processingOver() && !index.isEmpty()) writeIndex();
+        return false;
+    }
+
+    private void generate(TypeElement type){
+        if(!isAccessible(type)) {
+            warn(type, "Mapper is not generated for %s, the class must not be private or local", type);
+            return;
+        }
+        AnnotationMirror config = findAnnotation(type, MappedConfig.class);
+        List<String> properties = new ArrayList<>();
+        List<MappedIndex.Property> indexed = new ArrayList<>();
+        List<String> members = new ArrayList<>();
+        boolean generated = true;
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            AnnotationMirror mapped = findAnnotation(field, Mapped.class);
+            if(mapped == null) continue;
+            String name = field.getSimpleName().toString();
+            members.add(MappedIndex.field(name));
+            if(isFieldAccess(mapped, config)) {
+                if(field.getModifiers().contains(Modifier.FINAL) || field.getModifiers().contains(Modifier.STATIC)) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "Mapped field must not be final or static", field);
+                    return;
+                }
+                properties.add(declareField(type, name, mapped, config));
+                indexed.add(index(MappedIndex.FIELD, name, field.asType(), null, mapped, config));
+                continue;
+            }
+            ExecutableElement setter = findSetter(type, "set" + MappedDeclaration.capitalize(name));
+            if(setter == null) {
+                if(!hasCreator(type)) {
+                    warn(field, "Mapper is not generated for %s, cannot find a public set method for %s", type, name);
+                    return;
+                }
+                generated = false;
+                indexed.add(index(MappedIndex.CREATOR, name, field.asType(), null, mapped, config));
+                continue;
+            }
+            properties.add(declare(type, name, field.asType(), mapped, config, setter));
+            indexed.add(index(MappedIndex.SETTER, name, field.asType(), setter, mapped, config));
+        }
+
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            AnnotationMirror mapped = findAnnotation(method, Mapped.class);
+            if(mapped == null) continue;
+            members.add(MappedIndex.method(method.getSimpleName().toString()));
+            if(method.getParameters().size() != 1) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Mapped method must take exactly one parameter", method);
+                return;
+            }
+            if(!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC)) {
+                warn(method, "Mapper is not generated for %s, %s is not a public instance method", type, method);
+                return;
+            }
+            String name = MappedDeclaration.getFieldNameFromSetter(method.getSimpleName().toString());
+            TypeMirror propertyType = method.getParameters().get(0).asType();
+            properties.add(declare(type, name, propertyType, mapped, config, method));
+            indexed.add(index(MappedIndex.SETTER, name, propertyType, method, mapped, config));
+        }
+        if(generated) write(type, properties);
+        MappedIndex.Entry entry = new MappedIndex.Entry(generated, MappedIndex.fingerprint(members), indexed);
+        index.put(processingEnv.getElementUtils().getBinaryName(type).toString(), entry);
+    }
+
+    private MappedIndex.Property index(byte kind, String name, TypeMirror propertyType, ExecutableElement setter,
+                                       AnnotationMirror mapped, AnnotationMirror config){
+        String alias = (String) getValue(mapped, "name");
+        List<String> sourceClasses = new ArrayList<>();
+        List<?> classes = (List<?>) getValue(mapped, "targetClass");
+        if((classes == null || classes.isEmpty()) && config != null) classes = (List<?>) getValue(config, "targetClass");
+        if(classes != null) {
+            for (Object value : classes) sourceClasses.add(binaryName((TypeMirror) ((AnnotationValue) value).getValue()));
+        }
+        TypeMirror filter = (TypeMirror) getValue(mapped, "filter");
+        if((filter == null || filter.getKind() == TypeKind.VOID) && config != null)
+            filter = (TypeMirror) getValue(config, "filter");
+        Object mode = getValue(mapped, "collection");
+        return new MappedIndex.Property(kind, name, alias == null || alias.isEmpty() ? name : alias, binaryName(propertyType),
+                setter == null ? "" : setter.getSimpleName().toString(),
+                setter == null ? "" : binaryName(setter.getParameters().get(0).asType()),
+                sourceClasses.toArray(new String[0]),
+                filter == null || filter.getKind() == TypeKind.VOID ? "" : binaryName(filter),
+                mode == null ? CollectionMode.AUTO.name() : ((VariableElement) mode).getSimpleName().toString());
+    }
+
+    /**
+     * Writes the index of every class seen by this compilation. An incremental compilation writes a partial
+     * index, the classes it misses are scanned at runtime.
+     */
+    private void writeIndex(){
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", MappedIndex.RESOURCE);
+            try (OutputStream out = file.openOutputStream()) {
+                MappedIndex.write(out, index);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write " + MappedIndex.RESOURCE + ": " + e.getMessage());
+        }
+    }
+
+    private String declare(TypeElement type, String name, TypeMirror propertyType, AnnotationMirror mapped,
+                           AnnotationMirror config, ExecutableElement setter){
+        String alias = (String) getValue(mapped, "name");
+        ExecutableType setterType = (ExecutableType) processingEnv.getTypeUtils()
+                .asMemberOf((DeclaredType) type.asType(), setter);
+        return String.format("        property(\"%s\", \"%s\", %s, %s, %s, \"%s\",\n" +
+                        "                (target, value) -> target.%s((%s) value)%s);",
+                name,
+                alias == null || alias.isEmpty() ? name : alias,
+                classLiteral(propertyType),
+                classArray(mapped, config),
+                filterClass(mapped, config),
+                setter.getSimpleName(),
+                setter.getSimpleName(),
+                castType(setterType.getParameterTypes().get(0)),
+                collectionMode(mapped));
+    }
+
+    private String declareField(TypeElement type, String name, AnnotationMirror mapped, AnnotationMirror config){
+        String alias = (String) getValue(mapped, "name");
+        return String.format("        field(%s, \"%s\", \"%s\", %s, %s%s);",
+                classLiteral(type.asType()),
+                name,
+                alias == null || alias.isEmpty() ? name : alias,
+                classArray(mapped, config),
+                filterClass(mapped, config),
+                collectionMode(mapped));
+    }
+
+    private void write(TypeElement type, List<String> properties){
+        Elements elements = processingEnv.getElementUtils();
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String mapperName = GeneratedMapper.getMapperName(binaryName);
+        String simpleName = mapperName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+        String typeName = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(mapperName, type);
+            try (PrintWriter out = new PrintWriter(file.openWriter())) {
+                if(!packageName.isEmpty()) {
+                    out.println("package " + packageName + ";");
+                    out.println();
+                }
+                out.println("/**");
+                out.println(" * Generated by " + MappedProcessor.class.getName() + ", do not edit.");
+                out.println(" */");
+                out.println("public final class " + simpleName + " extends "
+                        + GeneratedMapper.class.getName() + "<" + typeName + "> {");
+                out.println();
+                out.println("    @SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+                out.println("    public " + simpleName + "() {");
+                for (String property : properties) out.println(property);
+                out.println("    }");
+                out.println("}");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write mapper " + mapperName + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * Same lookup as the runtime: a public method with the setter name and one parameter, declared
+     * by the class or inherited.
+     */
+    private ExecutableElement findSetter(TypeElement type, String setterName){
+        for (Element member : processingEnv.getElementUtils().getAllMembers(type)) {
+            if(member.getKind() != ElementKind.METHOD || !member.getSimpleName().contentEquals(setterName)) continue;
+            ExecutableElement method = (ExecutableElement) member;
+            if(method.getParameters().size() == 1 && method.getModifiers().contains(Modifier.PUBLIC)
+                    && !method.getModifiers().contains(Modifier.STATIC))
+                return method;
+        }
+        return null;
+    }
+
+    private static boolean hasCreator(TypeElement type){
+        for (Element member : type.getEnclosedElements()) {
+            if(findAnnotation(member, MappedCreator.class) != null) return true;
+        }
+        return false;
+    }
+
+    private static boolean isAccessible(TypeElement type){
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if(element.getModifiers().contains(Modifier.PRIVATE)) return false;
+            NestingKind nesting = ((TypeElement) element).getNestingKind();
+            if(nesting == NestingKind.LOCAL || nesting == NestingKind.ANONYMOUS) return false;
+            if(nesting == NestingKind.MEMBER && !element.getModifiers().contains(Modifier.STATIC)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isFieldAccess(AnnotationMirror mapped, AnnotationMirror config){
+        return Boolean.TRUE.equals(getValue(mapped, "fieldAccess"))
+                || config != null && Boolean.TRUE.equals(getValue(config, "fieldAccess"));
+    }
+
+    /**
+     * @return the collection mode argument, or nothing for the default mode.
+     */
+    private static String collectionMode(AnnotationMirror mapped){
+        Object mode = getValue(mapped, "collection");
+        if(mode == null || ((VariableElement) mode).getSimpleName().contentEquals(CollectionMode.AUTO.name())) return "";
+        return ", " + CollectionMode.class.getName() + "." + ((VariableElement) mode).getSimpleName();
+    }
+
+    private String classArray(AnnotationMirror mapped, AnnotationMirror config){
+        List<?> classes = (List<?>) getValue(mapped, "targetClass");
+        if((classes == null || classes.isEmpty()) && config != null) classes = (List<?>) getValue(config, "targetClass");
+        if(classes == null || classes.isEmpty()) return "null";
+        StringBuilder builder = new StringBuilder("new Class[]{");
+        for (int i = 0; i < classes.size(); i++) {
+            if(i > 0) builder.append(", ");
+            builder.append(classLiteral((TypeMirror) ((AnnotationValue) classes.get(i)).getValue()));
+        }
+        return builder.append('}').toString();
+    }
+
+    private String filterClass(AnnotationMirror mapped, AnnotationMirror config){
+        TypeMirror filter = (TypeMirror) getValue(mapped, "filter");
+        if((filter == null || filter.getKind() == TypeKind.VOID) && config != null)
+            filter = (TypeMirror) getValue(config, "filter");
+        return filter == null || filter.getKind() == TypeKind.VOID ? "null" : classLiteral(filter);
+    }
+
+    private String classLiteral(TypeMirror type){
+        return processingEnv.getTypeUtils().erasure(type).toString() + ".class";
+    }
+
+    /**
+     * @return the name {@link Class#forName} resolves, or the name of a primitive type.
+     */
+    private String binaryName(TypeMirror type){
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        if(erased.getKind().isPrimitive()) return erased.toString();
+        if(erased.getKind() == TypeKind.ARRAY) return descriptor(erased);
+        return processingEnv.getElementUtils()
+                .getBinaryName((TypeElement) processingEnv.getTypeUtils().asElement(erased)).toString();
+    }
+
+    private String descriptor(TypeMirror type){
+        switch (type.getKind()) {
+            case BOOLEAN: return "Z";
+            case BYTE: return "B";
+            case CHAR: return "C";
+            case SHORT: return "S";
+            case INT: return "I";
+            case LONG: return "J";
+            case FLOAT: return "F";
+            case DOUBLE: return "D";
+            case ARRAY: return "[" + descriptor(((ArrayType) type).getComponentType());
+            default: return "L" + binaryName(type) + ";";
+        }
+    }
+
+    private String castType(TypeMirror type){
+        Types types = processingEnv.getTypeUtils();
+        if(type.getKind().isPrimitive()) return types.boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        return types.erasure(type).toString();
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, Class<?> annotationType){
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if(((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName()
+                    .contentEquals(annotationType.getName()))
+                return mirror;
+        }
+        return null;
+    }
+
+    /**
+     * @return the explicit value of an annotation member, or {@code null} if it is left to its default.
+     */
+    private static Object getValue(AnnotationMirror mirror, String name){
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+            if(entry.getKey().getSimpleName().contentEquals(name)) return entry.getValue().getValue();
+        }
+        return null;
+    }
+
+    private void warn(Element element, String format, Object... args){
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, String.format(format, args), element);
+    }
+}
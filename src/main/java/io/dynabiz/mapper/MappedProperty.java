@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A mapped property whose getter, setter and filter are resolved once by {@link MappingPlan}.
+ *
+ * <p>The getter and setter are kept as accessors created by the {@link MapperEngine} of the plan.
+ */
+final class MappedProperty {
+    private final String name;
+    private final String sourceName;
+    private final Class type;
+    private final Method getter;
+    private final String setterName;
+    private final Method setter;
+    private final Field field;
+    private final Class filterClass;
+    private final Function<Object, Object> filter;
+    private final Class<?> nestedType;
+    private final ContainerConverter container;
+    private final Function<Object, Object> converter;
+    private final boolean widening;
+    private final Function<Object, Object> reader;
+    private final BiConsumer<Object, Object> writer;
+    private final BiConsumer<Object, Object> directCopier;
+
+    /**
+     * @param getter the getter or field the value is read from, or {@code null} when the source is a map
+     * @param setter the setter or field of the declaration, or the setter found by name for a generated
+     *               declaration of a primitive property. May be {@code null} when the declaration has a writer,
+     *               or when the value is passed to the creator of the target.
+     * @param filter the resolved filter, or {@code null} when the property is not filtered
+     * @param nestedType the class the value is mapped to, or {@code null} when the value is copied as it is
+     * @param container  copies the array, collection or map value, or {@code null} to set it as it is
+     * @param converter  converts the value to the property type, or {@code null} when it is assignable
+     */
+    MappedProperty(MappedDeclaration declaration, Member getter, Member setter, MapperEngine engine,
+                   Function<Object, Object> filter, Class<?> nestedType, ContainerConverter container,
+                   Function<Object, Object> converter) {
+        this.name = declaration.getName();
+        this.sourceName = declaration.getSourceName();
+        this.type = declaration.getType();
+        this.getter = getter instanceof Method ? (Method) getter : null;
+        this.setterName = declaration.getSetterName();
+        this.setter = setter instanceof Method ? (Method) setter : null;
+        this.field = declaration.getField();
+        this.filterClass = declaration.getFilterClass();
+        this.filter = filter;
+        this.nestedType = nestedType;
+        this.container = container;
+        this.converter = converter;
+        this.widening = ConverterRegistry.isWidening(converter);
+        this.reader = getter != null ? engine.getter(getter) : null;
+        this.writer = declaration.getWriter() != null ? declaration.getWriter() : setter != null ? engine.setter(setter) : null;
+        this.directCopier = isCopiedAsIs() && getter != null && setter != null ? engine.directCopier(getter, setter) : null;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getSourceName() {
+        return sourceName;
+    }
+
+    Class getType() {
+        return type;
+    }
+
+    /**
+     * @return the target field when the property is mapped by field access.
+     */
+    Field getField() {
+        return field;
+    }
+
+    /**
+     * @return the reflected getter, or {@code null} when the value is read from a field.
+     */
+    Method getGetter() {
+        return getter;
+    }
+
+    String getSetterName() {
+        return setterName;
+    }
+
+    /**
+     * @return the reflected setter, or {@code null} when the property is written by a {@link GeneratedMapper}
+     * and is not primitive, or is written to a field.
+     */
+    Method getSetter() {
+        return setter;
+    }
+
+    Class getFilterClass() {
+        return filterClass;
+    }
+
+    /**
+     * @return whether the value is set without being filtered, mapped, copied or converted, a primitive
+     * may still be widened.
+     */
+    boolean isCopiedAsIs() {
+        return filter == null && nestedType == null && container == null && (converter == null || widening);
+    }
+
+    /**
+     * @return whether copying the property maps objects, which needs a {@link MappingContext}.
+     */
+    boolean isDeep() {
+        return nestedType != null || container != null && container.isDeep();
+    }
+
+    void apply(Object target, Object source, MappingContext context){
+        if(directCopier != null) {
+            directCopier.accept(target, source);
+            return;
+        }
+        write(target, reader.apply(source), context);
+    }
+
+    /**
+     * Maps, copies or converts a value read from the source and sets it on the target.
+     */
+    void write(Object target, Object value, MappingContext context){
+        writer.accept(target, convert(value, context));
+    }
+
+    Object read(Object source){
+        return reader.apply(source);
+    }
+
+    void set(Object target, Object value){
+        writer.accept(target, value);
+    }
+
+    /**
+     * Compares a value read from the source with the current value of the target. Nested values and
+     * mapped elements are compared with their plans instead of being mapped, see
+     * {@link MappingPlan#matches}.
+     *
+     * @return whether {@link #write} would set an equal value
+     */
+    boolean matches(Mapper owner, Object value, Object current, Map<Object, Object> comparing){
+        if(nestedType != null) return MappingPlan.matches(owner, nestedType, value, current, comparing);
+        if(container != null && container.isDeep()) {
+            if(value == null || current == null) return value == current;
+            return container.matches(value, current, (type, element, currentElement) ->
+                    MappingPlan.matches(owner, type, element, currentElement, comparing));
+        }
+        return Objects.deepEquals(convert(value, null), current);
+    }
+
+    /**
+     * @return the value {@link #write} sets for a value read from the source.
+     */
+    Object convert(Object value, MappingContext context){
+        if(nestedType != null) value = nestedType.isInstance(value) ? value : context.map(nestedType, value);
+        else if(container != null && value != null) value = container.convert(value, context);
+        else if(converter != null && value != null) value = converter.apply(value);
+        return filter == null ? value : filter.apply(value);
+    }
+}
@@ -0,0 +1,516 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import io.dynabiz.util.Assert;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Maps {@code @Mapped} properties from source objects to target objects, with its own engine and plan
+ * cache. A mapper is thread safe, create one per module with {@link #builder()} or use the default
+ * instance behind {@link ObjectMapper}.
+ *
+ * <p>Plans are kept with the classes they map, so they do not keep classes from being unloaded. In
+ * turn a mapper that is no longer used keeps its plans, with their generated classes, as long as the
+ * classes live, unless it is {@link #clear cleared}.
+ */
+public final class Mapper {
+
+    /**
+     * Inputs smaller than this are mapped on the calling thread by {@link #mapAllParallel}.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 10000;
+
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    /**
+     * The smallest chunk one fork-join task maps, smaller ones cost more in scheduling than they save.
+     */
+    private static final int MIN_PARALLEL_CHUNK = 512;
+
+    private final MapperEngine engine;
+    private final FilterRegistry filters;
+    private final ConverterRegistry converters;
+    private final PlanCache plans;
+    private final MapperMetrics metrics;
+    /**
+     * Column plans depend on one class only and are few, they are kept as long as their class.
+     */
+    private final ClassValue<ColumnPlan> columnPlans = new ClassValue<ColumnPlan>() {
+        @Override
+        protected ColumnPlan computeValue(Class<?> type) {
+            return ColumnPlan.compile(engine, type);
+        }
+    };
+
+    private final ClassValue<ResetPlan> resetPlans = new ClassValue<ResetPlan>() {
+        @Override
+        protected ResetPlan computeValue(Class<?> type) {
+            return ResetPlan.compile(engine, type);
+        }
+    };
+
+    private Mapper(Builder builder) {
+        this.engine = builder.engine;
+        this.filters = new FilterRegistry(builder.filters, builder.filterFactory);
+        this.converters = new ConverterRegistry(builder.converters);
+        this.metrics = builder.metrics ? new MapperMetrics(this) : null;
+        this.plans = new PlanCache(this, builder.cacheSize);
+    }
+
+    public static Builder builder(){
+        return new Builder();
+    }
+
+    public MapperEngine getEngine() {
+        return engine;
+    }
+
+    FilterRegistry getFilters() {
+        return filters;
+    }
+
+    ConverterRegistry getConverters() {
+        return converters;
+    }
+
+    public CacheStats getCacheStats(){
+        return plans.stats();
+    }
+
+    /**
+     * Drops the cached plans, e.g. before the mapper is discarded. Later calls compile them again.
+     */
+    public void clear(){
+        plans.clear();
+    }
+
+    /**
+     * @return the metrics of this mapper, or {@code null} when it was built without them.
+     */
+    public MapperMetrics getMetrics() {
+        return metrics;
+    }
+
+    public <T, ST> T mapFrom(Class<T> targetType, ST sources){
+        return mapFrom(targetType, sources, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T, ST> T mapFrom(Class<T> targetType, ST sources,  Mapping<ST, T> mapping){
+        Objects.requireNonNull(sources, "Source object could not be null.");
+
+        MappingPlan plan = getPlan(targetType, sources.getClass());
+        T target = (T) plan.mapFrom(this, sources);
+
+        if(mapping != null)mapping.mapTo(sources, target);
+        return target;
+    }
+
+    public <T, ST> List<T> mapAll(Class<T> targetType, Collection<? extends ST> sources){
+        return mapAll(targetType, sources, null);
+    }
+
+    public <T, ST> List<T> mapAll(Class<T> targetType, Collection<? extends ST> sources, Mapping<ST, T> mapping){
+        List<T> targets = new ArrayList<>(sources.size());
+        mapEach(targetType, sources, targets, mapping);
+        return targets;
+    }
+
+    public <T, ST> List<T> mapAll(Class<T> targetType, ST[] sources){
+        return mapAll(targetType, sources, null);
+    }
+
+    public <T, ST> List<T> mapAll(Class<T> targetType, ST[] sources, Mapping<ST, T> mapping){
+        return mapAll(targetType, Arrays.asList(sources), mapping);
+    }
+
+    /**
+     * Maps every source and appends the results to the given list, in order. A {@code null} source is
+     * mapped to a {@code null} target.
+     *
+     * @return the given target list
+     */
+    public <T, ST, L extends List<? super T>> L mapAll(L targets, Class<T> targetType,
+                                                       Collection<? extends ST> sources){
+        return mapAll(targets, targetType, sources, null);
+    }
+
+    public <T, ST, L extends List<? super T>> L mapAll(L targets, Class<T> targetType,
+                                                       Collection<? extends ST> sources, Mapping<ST, T> mapping){
+        if(targets instanceof ArrayList) ((ArrayList<?>) targets).ensureCapacity(targets.size() + sources.size());
+        mapEach(targetType, sources, targets, mapping);
+        return targets;
+    }
+
+    public <T, ST> void map(T target, ST sources){
+        map(target, sources, null);
+    }
+
+    public <T, ST> void map(T target, ST sources, Mapping<ST, T> mapping){
+        Objects.requireNonNull(target, "Target object could not be null.");
+        Objects.requireNonNull(sources, "Source object could not be null.");
+
+        MappingPlan plan = getPlan(target.getClass(), sources.getClass());
+        plan.map(this, target, sources);
+
+        if(mapping != null)mapping.mapTo(sources, target);
+    }
+
+    /**
+     * Sets every {@code @Mapped} property of the target to {@code null}, zero or {@code false}, so a
+     * recycled target keeps nothing of its previous source. A property is cleared through the field of
+     * its name, and through its setter only when it has no such field. Properties only passed to a
+     * {@link MappedCreator} keep their values. A map target is cleared. The reset allocates nothing, see
+     * {@link TargetPool}.
+     *
+     * @throws MapperException if a property has neither a writable field nor a setter
+     * @return the given target
+     */
+    public <T> T reset(T target){
+        Objects.requireNonNull(target, "Target object could not be null.");
+        resetPlans.get(target.getClass()).reset(target);
+        return target;
+    }
+
+    /**
+     * Sets the properties that change to a non-null value, see {@link PatchMode#SKIP_NULLS_AND_UNCHANGED}.
+     *
+     * @return the properties that were set
+     */
+    public <T, ST> PropertyChanges patch(T target, ST source){
+        return patch(target, source, PatchMode.SKIP_NULLS_AND_UNCHANGED);
+    }
+
+    /**
+     * Copies the properties of the source like {@link #map}, except the ones the mode skips. Patches do
+     * not go through generated copiers, and comparing values boxes primitives.
+     *
+     * @return the properties that were set
+     */
+    public <T, ST> PropertyChanges patch(T target, ST source, PatchMode mode){
+        Objects.requireNonNull(target, "Target object could not be null.");
+        Objects.requireNonNull(source, "Source object could not be null.");
+        Objects.requireNonNull(mode, "Patch mode could not be null.");
+        return getPlan(target.getClass(), source.getClass()).patch(this, target, source, mode);
+    }
+
+    /**
+     * Compares the properties of the source, as {@link #map} would set them, with the current values of the
+     * target without changing it.
+     *
+     * @return the properties whose values differ
+     */
+    public <T, ST> PropertyChanges diff(T target, ST source){
+        Objects.requireNonNull(target, "Target object could not be null.");
+        Objects.requireNonNull(source, "Source object could not be null.");
+        return getPlan(target.getClass(), source.getClass()).patch(this, target, source, null);
+    }
+
+    /**
+     * Writes the {@code @Mapped} properties the source declares to a new map, keyed by their
+     * {@code @Mapped(name = ...)} aliases. The reverse is {@link #mapFrom} or {@link #map} with a map source,
+     * which sets the properties whose source names are keys of the map and converts the values by their class.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> mapToMap(Object source){
+        return mapFrom(Map.class, source);
+    }
+
+    /**
+     * @return the {@code @Mapped} properties of the beans as one array per property, in the order of the beans
+     */
+    public <T> ColumnBatch<T> toColumns(Class<T> type, Collection<? extends T> beans){
+        Objects.requireNonNull(beans, "Beans could not be null.");
+        return columnPlans.get(type).scatter(type, beans);
+    }
+
+    /**
+     * @return a batch of the given number of rows whose columns are empty arrays, to be filled by the caller
+     */
+    public <T> ColumnBatch<T> newColumns(Class<T> type, int size){
+        Assert.beFalse(size < 0, new IllegalArgumentException("Size could not be negative."));
+        return columnPlans.get(type).newBatch(type, size);
+    }
+
+    /**
+     * @return a new bean per row of the batch, with the {@code @Mapped} properties set from the columns
+     */
+    public <T> List<T> fromColumns(ColumnBatch<T> batch){
+        Objects.requireNonNull(batch, "Batch could not be null.");
+        return columnPlans.get(batch.getType()).gather(batch);
+    }
+
+    public <T, ST> List<T> mapAllParallel(Class<T> targetType, Collection<? extends ST> sources){
+        return mapAllParallel(targetType, sources, null);
+    }
+
+    public <T, ST> List<T> mapAllParallel(Class<T> targetType, Collection<? extends ST> sources,
+                                          Mapping<ST, T> mapping){
+        return mapAllParallel(targetType, sources, mapping, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Maps the sources in chunks on the given pool. The result has the order of the sources, and inputs
+     * smaller than the threshold are mapped on the calling thread. The mapping callback may be called
+     * from several threads at once.
+     */
+    @SuppressWarnings("unchecked")
+    public <T, ST> List<T> mapAllParallel(Class<T> targetType, Collection<? extends ST> sources,
+                                          Mapping<ST, T> mapping, ForkJoinPool pool, int threshold){
+        Objects.requireNonNull(sources, "Source objects could not be null.");
+        Objects.requireNonNull(pool, "Pool could not be null.");
+        if(sources.size() < threshold) return mapAll(targetType, sources, mapping);
+
+        Object[] input = sources.toArray();
+        Object[] output = new Object[input.length];
+        int chunkSize = Math.max(MIN_PARALLEL_CHUNK, input.length / (pool.getParallelism() * 4));
+        pool.invoke(new ParallelMapTask<>(this, targetType, mapping, input, output, 0, input.length, chunkSize));
+        return (List<T>) new ArrayList<>(Arrays.asList(output));
+    }
+
+    public <T, ST> Stream<T> mapStream(Class<T> targetType, Stream<? extends ST> sources){
+        return mapStream(targetType, sources, null);
+    }
+
+    /**
+     * @return a stream that maps each source when it is consumed. A {@code null} source is mapped to a
+     * {@code null} target. The stream may run in parallel, so the mapping callback must be thread safe then.
+     */
+    public <T, ST> Stream<T> mapStream(Class<T> targetType, Stream<? extends ST> sources,
+                                       Mapping<ST, T> mapping){
+        Objects.requireNonNull(sources, "Source objects could not be null.");
+        return sources.map(source -> source == null ? null : mapFrom(targetType, source, mapping));
+    }
+
+    public <T, ST> Iterator<T> mapIterator(Class<T> targetType, Iterator<? extends ST> sources){
+        return mapIterator(targetType, sources, null);
+    }
+
+    /**
+     * @return an iterator that maps each source when it is reached. A {@code null} source is mapped to a
+     * {@code null} target.
+     */
+    public <T, ST> Iterator<T> mapIterator(Class<T> targetType, Iterator<? extends ST> sources,
+                                           Mapping<ST, T> mapping){
+        Objects.requireNonNull(sources, "Source objects could not be null.");
+        return new MappingIterator<>(this, targetType, sources, mapping);
+    }
+
+    public <T, ST> Iterable<T> mapIterable(Class<T> targetType, Iterable<? extends ST> sources){
+        return mapIterable(targetType, sources, null);
+    }
+
+    /**
+     * @return a view of the sources that maps them again on every iteration.
+     */
+    public <T, ST> Iterable<T> mapIterable(Class<T> targetType, Iterable<? extends ST> sources,
+                                           Mapping<ST, T> mapping){
+        Objects.requireNonNull(sources, "Source objects could not be null.");
+        return () -> new MappingIterator<>(this, targetType, sources.iterator(), mapping);
+    }
+
+    /**
+     * Compiles and caches the plans of a target class ahead of the first map call, so configuration errors
+     * such as a missing getter or setter fail here.
+     *
+     * @param sourceTypes the source classes to compile plans for, when empty the classes the properties
+     *                    are restricted to by {@code targetClass} are used
+     */
+    public void register(Class<?> targetType, Class<?>... sourceTypes){
+        Set<Class<?>> declaredSourceTypes = MappingPlan.validate(targetType);
+        for (Class<?> sourceType : sourceTypes.length == 0 ? declaredSourceTypes : Arrays.asList(sourceTypes)) {
+            getPlan(targetType, sourceType);
+        }
+    }
+
+    public List<Class<?>> registerPackage(String packageName){
+        return registerPackage(packageName, Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * Registers every class of the package and its sub packages that declares {@code @Mapped} properties
+     * or {@code @MappedConfig}, see {@link #register}.
+     *
+     * @return the registered classes
+     */
+    public List<Class<?>> registerPackage(String packageName, ClassLoader loader){
+        List<Class<?>> registered = new ArrayList<>();
+        for (Class<?> type : ClassScanner.scan(packageName, loader)) {
+            if(GeneratedMapper.class.isAssignableFrom(type) || !MappingPlan.isMapped(type)) continue;
+            register(type);
+            registered.add(type);
+        }
+        return registered;
+    }
+
+    public List<Class<?>> registerIndexed(){
+        return registerIndexed(Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * Registers every class listed in the {@link MappedIndex} the annotation processor wrote to the modules
+     * the class loader sees, see {@link #register}. Unlike {@link #registerPackage} it scans no directory or jar.
+     *
+     * @return the registered classes
+     */
+    public List<Class<?>> registerIndexed(ClassLoader loader){
+        Objects.requireNonNull(loader, "Class loader could not be null.");
+        List<Class<?>> registered = new ArrayList<>();
+        for (String className : MappedIndex.of(loader).getClassNames()) {
+            Class<?> type;
+            try {
+                type = Class.forName(className, false, loader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                continue;
+            }
+            register(type);
+            registered.add(type);
+        }
+        return registered;
+    }
+
+    /**
+     * Maps a new instance of the source class the given number of times, so the copy path is compiled by
+     * the JIT before real traffic arrives. The source class needs a no-argument constructor, and the target
+     * setters must accept its default values, otherwise use {@link #warmUpWith}.
+     */
+    public void warmUp(Class<?> targetType, Class<?> sourceType, int iterations){
+        warmUpWith(targetType, PropertyAccessors.constructor(sourceType).get(), iterations);
+    }
+
+    /**
+     * Maps the sample the given number of times, so the copy path is compiled by the JIT before real
+     * traffic arrives. About ten thousand iterations reach the optimizing compiler.
+     */
+    public <T, ST> void warmUpWith(Class<T> targetType, ST sample, int iterations){
+        Objects.requireNonNull(sample, "Sample object could not be null.");
+        register(targetType, sample.getClass());
+        BatchMapper<T, ST> mapper = new BatchMapper<>(this, targetType, null);
+        for (int i = 0; i < iterations; i++) {
+            mapper.map(sample);
+        }
+    }
+
+    private <T, ST> void mapEach(Class<T> targetType, Iterable<? extends ST> sources,
+                                 List<? super T> targets, Mapping<ST, T> mapping){
+        Objects.requireNonNull(sources, "Source objects could not be null.");
+
+        BatchMapper<T, ST> mapper = new BatchMapper<>(this, targetType, mapping);
+        for (ST source : sources) {
+            targets.add(mapper.map(source));
+        }
+    }
+
+    MappingPlan getPlan(Class<?> targetType, Class<?> sourceType){
+        return plans.get(targetType, sourceType);
+    }
+
+    MappingPlan lookupPlan(Class<?> targetType, Class<?> sourceType){
+        return plans.lookup(targetType, sourceType);
+    }
+
+    public static final class Builder {
+        private MapperEngine engine = MapperEngine.getDefault();
+        private int cacheSize = DEFAULT_CACHE_SIZE;
+        private final Map<Class<?>, Function<?, ?>> filters = new HashMap<>();
+        private Function<Class<?>, ? extends Function<?, ?>> filterFactory;
+        private final Map<Class<?>, Map<Class<?>, Function<?, ?>>> converters = new HashMap<>();
+        private boolean metrics;
+
+        private Builder() {
+        }
+
+        public Builder engine(MapperEngine engine){
+            this.engine = Objects.requireNonNull(engine, "Engine could not be null.");
+            return this;
+        }
+
+        /**
+         * @param cacheSize the number of class pairs whose plans are kept, {@value Mapper#DEFAULT_CACHE_SIZE} by default
+         */
+        public Builder cacheSize(int cacheSize){
+            Assert.beTrue(cacheSize > 0, new IllegalArgumentException("Cache size must be positive."));
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * Uses the given function wherever {@code @Mapped(filter = ...)} names the filter class. The class
+         * may also be an interface the function implements.
+         */
+        public Builder filter(Class<?> filterClass, Function<?, ?> filter){
+            Objects.requireNonNull(filterClass, "Filter class could not be null.");
+            filters.put(filterClass, Objects.requireNonNull(filter, "Filter could not be null."));
+            return this;
+        }
+
+        /**
+         * Supplies the filters that were not given to {@link #filter}, e.g. {@code context::getBean}. When
+         * the factory returns {@code null} the filter class is instantiated through its no-argument constructor.
+         */
+        public Builder filterFactory(Function<Class<?>, ? extends Function<?, ?>> filterFactory){
+            this.filterFactory = filterFactory;
+            return this;
+        }
+
+        /**
+         * Converts the values of properties whose getter returns the source type, or one of its subtypes,
+         * to properties of the target type. Primitive types stand for their wrappers. The converter is
+         * chosen when a plan is built and takes precedence over the built-in ones, it is not called for
+         * {@code null} values.
+         */
+        public <S, T> Builder converter(Class<S> sourceType, Class<T> targetType, Function<? super S, ? extends T> converter){
+            Objects.requireNonNull(sourceType, "Source type could not be null.");
+            Objects.requireNonNull(targetType, "Target type could not be null.");
+            converters.computeIfAbsent(PropertyAccessors.box(targetType), type -> new HashMap<>())
+                    .put(PropertyAccessors.box(sourceType), Objects.requireNonNull(converter, "Converter could not be null."));
+            return this;
+        }
+
+        /**
+         * Counts map calls, properties, filter calls and plan compiles per class pair and records their
+         * latencies, see {@link MapperMetrics}. Off by default.
+         */
+        public Builder metrics(boolean metrics){
+            this.metrics = metrics;
+            return this;
+        }
+
+        public Mapper build(){
+            return new Mapper(this);
+        }
+    }
+}
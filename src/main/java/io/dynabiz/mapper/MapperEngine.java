@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import io.dynabiz.util.Assert;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * How a {@link Mapper} copies the properties of its plans.
+ *
+ * <ul>
+ *     <li>{@link #REFLECTION} calls getters and setters through {@link Method#invoke}, it spins no classes.</li>
+ *     <li>{@link #METHOD_HANDLE} calls them through {@link java.lang.invoke.LambdaMetafactory} accessors,
+ *     primitive properties are copied without boxing. Fields and methods that cannot be spun that way are
+ *     accessed through reflection.</li>
+ *     <li>{@link #GENERATED} emits a copier class per class pair with ASM, and falls back to
+ *     {@link #METHOD_HANDLE} when ASM is missing or the classes are not accessible.</li>
+ * </ul>
+ *
+ * <p>{@link #tiered} engines start every class pair on {@link #REFLECTION} and compile only the hot ones.
+ */
+public abstract class MapperEngine {
+    public static final MapperEngine REFLECTION = new MapperEngine("reflection") {
+        @Override
+        Function<Object, Object> getter(Member getter) {
+            return PropertyAccessors.reflectiveGetter(getter);
+        }
+
+        @Override
+        BiConsumer<Object, Object> setter(Member setter) {
+            return PropertyAccessors.reflectiveSetter(setter);
+        }
+    };
+
+    public static final MapperEngine METHOD_HANDLE = new HandleEngine("method-handle");
+
+    public static final MapperEngine GENERATED = new HandleEngine("generated") {
+        @Override
+        GeneratedCopier copier(Class<?> targetType, Class<?> sourceType, MappedProperty[] properties) {
+            return GeneratedCopier.generate(targetType, sourceType, properties);
+        }
+    };
+
+    private final String name;
+
+    MapperEngine(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return {@link #GENERATED} when ASM is on the class path, {@link #METHOD_HANDLE} otherwise.
+     */
+    public static MapperEngine getDefault(){
+        return GeneratedCopier.isGeneratorPresent() ? GENERATED : METHOD_HANDLE;
+    }
+
+    /**
+     * @return an engine that copies each class pair through a {@link #REFLECTION} plan until the pair was
+     * mapped {@code threshold} times, then through a plan compiled by the given engine. The plan is
+     * compiled by the call that reaches the threshold while other calls keep using the reflective one,
+     * and replaces it atomically.
+     */
+    public static MapperEngine tiered(MapperEngine compiled, int threshold){
+        Objects.requireNonNull(compiled, "Engine could not be null.");
+        Assert.beFalse(compiled instanceof TieredEngine, new IllegalArgumentException("Engine is already tiered."));
+        Assert.beTrue(threshold > 0, new IllegalArgumentException("Threshold must be positive."));
+        return new TieredEngine(compiled, threshold);
+    }
+
+    abstract Function<Object, Object> getter(Member getter);
+
+    abstract BiConsumer<Object, Object> setter(Member setter);
+
+    /**
+     * @return a copy of the property that does not pass the value through the getter and setter accessors,
+     * which would box a primitive, or {@code null} to copy it through them.
+     */
+    BiConsumer<Object, Object> directCopier(Member getter, Member setter){
+        return null;
+    }
+
+    /**
+     * @return an accessor that moves a primitive property between beans and a column without boxing it,
+     * or {@code null} to move it through the getter and setter accessors.
+     */
+    ColumnPlan.Accessor column(Member getter, Member setter){
+        return null;
+    }
+
+    /**
+     * @return a copier for the whole class pair, or {@code null} to copy property by property.
+     */
+    GeneratedCopier copier(Class<?> targetType, Class<?> sourceType, MappedProperty[] properties){
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static class HandleEngine extends MapperEngine {
+        private HandleEngine(String name) {
+            super(name);
+        }
+
+        @Override
+        Function<Object, Object> getter(Member getter) {
+            return PropertyAccessors.getter(getter);
+        }
+
+        @Override
+        BiConsumer<Object, Object> setter(Member setter) {
+            return PropertyAccessors.setter(setter);
+        }
+
+        /**
+         * Two methods of the same type are joined by {@link PrimitiveAccessors} lambdas the JIT can inline,
+         * as soon as a field is involved or a primitive is widened the copy is a single combined handle.
+         */
+        @Override
+        BiConsumer<Object, Object> directCopier(Member getter, Member setter) {
+            if(getter instanceof Method && setter instanceof Method && !ConverterRegistry.isWidening(
+                    ((Method) getter).getReturnType(), ((Method) setter).getParameterTypes()[0]))
+                return PrimitiveAccessors.copier((Method) getter, (Method) setter);
+            return PropertyAccessors.copier(getter, setter);
+        }
+
+        @Override
+        ColumnPlan.Accessor column(Member getter, Member setter) {
+            return PropertyAccessors.column(getter, setter);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The counters of a {@link Mapper} built with {@link Mapper.Builder#metrics}: per target/source class pair,
+ * the map calls, copied properties, filter calls, plan compiles and evictions and a latency histogram.
+ *
+ * <p>Without metrics plans carry no counters, so a map call only tests that they are absent. With metrics
+ * every top level map call reads the clock twice and updates a few striped counters.
+ *
+ * <p>Pairs are identified by their classes, so same-named classes of different class loaders are counted
+ * apart. The classes are held weakly, and the counters of a pair are dropped once one of them is unloaded.
+ */
+public final class MapperMetrics implements MapperMetricsMXBean {
+    private final Mapper owner;
+    private final ConcurrentMap<PairKey, PairMetrics> pairs = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Class<?>> unloaded = new ReferenceQueue<>();
+    private ObjectName objectName;
+
+    MapperMetrics(Mapper owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Called when a plan is compiled, the counters of a pair outlive the evictions of its plan.
+     */
+    PairMetrics pair(Class<?> targetType, Class<?> sourceType){
+        expunge();
+        return pairs.computeIfAbsent(new PairKey(targetType, sourceType, unloaded),
+                key -> new PairMetrics(targetType.getName(), sourceType.getName()));
+    }
+
+    /**
+     * @return the counters of every class pair.
+     */
+    public List<MappingStats> snapshot(){
+        expunge();
+        List<MappingStats> stats = new ArrayList<>(pairs.size());
+        for (PairMetrics pair : pairs.values()) stats.add(pair.snapshot());
+        return stats;
+    }
+
+    /**
+     * @return the counters of the class pair, or {@code null} when it was not mapped yet.
+     */
+    public MappingStats snapshot(Class<?> targetType, Class<?> sourceType){
+        PairMetrics pair = pairs.get(new PairKey(targetType, sourceType, null));
+        return pair == null ? null : pair.snapshot();
+    }
+
+    @Override
+    public List<MappingStats> getPairs() {
+        return snapshot();
+    }
+
+    @Override
+    public CacheStats getCacheStats() {
+        return owner.getCacheStats();
+    }
+
+    @Override
+    public void reset() {
+        for (PairMetrics pair : pairs.values()) pair.reset();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server as
+     * {@code io.dynabiz.mapper:type=Mapper,name=<name>}.
+     *
+     * @return the name the metrics are registered under
+     */
+    public synchronized ObjectName register(String name){
+        try {
+            ObjectName objectName = new ObjectName("io.dynabiz.mapper:type=Mapper,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+            return objectName;
+        } catch (JMException e) {
+            throw new MapperException(e);
+        }
+    }
+
+    /**
+     * Drops the pairs of unloaded classes.
+     */
+    private void expunge(){
+        for (Object reference; (reference = unloaded.poll()) != null; ) {
+            pairs.remove(((ClassReference) reference).key);
+        }
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server, if they were registered.
+     */
+    public synchronized void unregister(){
+        if(objectName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new MapperException(e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    /**
+     * A target/source class pair compared by identity. A key whose class is gone only equals itself.
+     */
+    private static final class PairKey {
+        private final ClassReference targetType;
+        private final ClassReference sourceType;
+        private final int hash;
+
+        private PairKey(Class<?> targetType, Class<?> sourceType, ReferenceQueue<Class<?>> queue) {
+            this.targetType = new ClassReference(targetType, queue, this);
+            this.sourceType = new ClassReference(sourceType, queue, this);
+            this.hash = 31 * System.identityHashCode(targetType) + System.identityHashCode(sourceType);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(!(o instanceof PairKey)) return false;
+            PairKey key = (PairKey) o;
+            Class<?> target = targetType.get();
+            Class<?> source = sourceType.get();
+            return target != null && source != null && target == key.targetType.get() && source == key.sourceType.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class ClassReference extends WeakReference<Class<?>> {
+        private final PairKey key;
+
+        private ClassReference(Class<?> type, ReferenceQueue<Class<?>> queue, PairKey key) {
+            super(type, queue);
+            this.key = key;
+        }
+    }
+}
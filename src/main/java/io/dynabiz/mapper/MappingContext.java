@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The state of one deep map call: the target created for each source object and target class, and the
+ * nested objects that still have to be copied.
+ *
+ * <p>A nested object is created and remembered when it is first reached and copied later from a queue,
+ * so shared references map to one target, cycles end, and deep graphs do not grow the stack. It is
+ * public only because {@link GeneratedCopier}s pass it on.
+ */
+public final class MappingContext {
+    /**
+     * Stands for the target of a source while its creator values are mapped.
+     */
+    private static final Object CREATING = new Object();
+
+    private final Mapper owner;
+    private final Map<Class<?>, IdentityHashMap<Object, Object>> targets = new HashMap<>();
+    private final ArrayDeque<Object> pending = new ArrayDeque<>();
+
+    MappingContext(Mapper owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * @return the target the source is mapped to, created and queued for copying on first use.
+     */
+    Object map(Class<?> targetType, Object source){
+        if(source == null) return null;
+        IdentityHashMap<Object, Object> mapped = mappedTo(targetType);
+        Object target = mapped.get(source);
+        if(target == CREATING)
+            throw new MapperException(String.format("Cannot create %s, its creator properties refer back to its source",
+                    targetType.getName()));
+        if(target == null) {
+            MappingPlan plan = owner.getPlan(targetType, source.getClass());
+            if(plan.hasCreator()) return create(plan, targetType, source);
+            target = plan.newTarget();
+            mapped.put(source, target);
+            queue(plan, target, source);
+        }
+        return target;
+    }
+
+    /**
+     * Creates the target through the {@link MappedCreator} of the plan right away, since the values it takes
+     * must be mapped first, and queues the other properties. A cycle through creator values cannot be
+     * mapped.
+     */
+    Object create(MappingPlan plan, Class<?> targetType, Object source){
+        mappedTo(targetType).put(source, CREATING);
+        Object target = plan.create(source, this);
+        mappedTo(targetType).put(source, target);
+        queue(plan, target, source);
+        return target;
+    }
+
+    void put(Class<?> targetType, Object source, Object target){
+        mappedTo(targetType).put(source, target);
+    }
+
+    /**
+     * Copies the queued nested objects, including the ones they reach in turn.
+     */
+    void drain(){
+        while (!pending.isEmpty()) {
+            MappingPlan plan = (MappingPlan) pending.poll();
+            Object target = pending.poll();
+            Object source = pending.poll();
+            plan.apply(target, source, this);
+        }
+    }
+
+    private void queue(MappingPlan plan, Object target, Object source){
+        pending.add(plan);
+        pending.add(target);
+        pending.add(source);
+    }
+
+    private IdentityHashMap<Object, Object> mappedTo(Class<?> targetType){
+        IdentityHashMap<Object, Object> mapped = targets.get(targetType);
+        if(mapped == null) targets.put(targetType, mapped = new IdentityHashMap<>());
+        return mapped;
+    }
+}
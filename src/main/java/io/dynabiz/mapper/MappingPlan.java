@@ -0,0 +1,683 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import io.dynabiz.util.Assert;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The compiled mapping between one target class and one source class.
+ *
+ * <p>All annotation reading and getter/setter lookups happen once in {@link #compile}, a plan is
+ * immutable afterwards and can be shared between threads. The copy itself runs through a
+ * {@link GeneratedCopier} or through the accessors of each property, as the {@link MapperEngine} decides.
+ */
+final class MappingPlan {
+    /**
+     * Declared properties of each class, they do not depend on the source class. They come from the
+     * {@link MappedIndex} of the class loader when it lists the class without a generated mapper, from the
+     * generated mapper, or from the annotations of the class.
+     */
+    private static final ClassValue<MappedDeclaration[]> DECLARATIONS = new ClassValue<MappedDeclaration[]>() {
+        @Override
+        protected MappedDeclaration[] computeValue(Class<?> type) {
+            MappedIndex.Entry entry = MappedIndex.of(type.getClassLoader()).get(type.getName());
+            MappedDeclaration[] indexed = entry != null && !entry.isGenerated() ? MappedIndex.declarations(type, entry) : null;
+            if(indexed != null) return indexed;
+            GeneratedMapper<?> mapper = GeneratedMapper.find(type);
+            return mapper != null ? mapper.getDeclarations() : MappedDeclaration.scan(type);
+        }
+    };
+
+    private static final AtomicReferenceFieldUpdater<MappingPlan, MappingPlan> PROMOTED =
+            AtomicReferenceFieldUpdater.newUpdater(MappingPlan.class, MappingPlan.class, "promoted");
+
+    private final Class<?> targetType;
+    private final Class<?> sourceType;
+    private final MappedProperty[] properties;
+    private final GeneratedCopier copier;
+    private final Supplier<Object> constructor;
+    /**
+     * Creates the target from the {@link #arguments} when its class declares a {@link MappedCreator},
+     * otherwise {@code null}.
+     */
+    private final TargetCreator creator;
+    /**
+     * The properties passed to the creator in its order, a property that does not apply to the source
+     * class is {@code null}.
+     */
+    private final MappedProperty[] arguments;
+    private final boolean deep;
+    /**
+     * The index of the property source names when the source is a map.
+     */
+    private final MapAccessors.NameIndex names;
+    /**
+     * Writes the properties of the source when the target is a map.
+     */
+    private final MapAccessors.Export export;
+    private final MapperEngine engine;
+    private final String[] propertyNames;
+    /**
+     * The counters of the class pair, or {@code null} when the mapper has no metrics.
+     */
+    private final PairMetrics metrics;
+    /**
+     * Reads the current values of the target for {@link #patch}, created on its first call.
+     */
+    private volatile Function<Object, Object>[] targetReaders;
+    /**
+     * The engine of the next tier when the plan was compiled by a {@link TieredEngine}, otherwise {@code null}.
+     */
+    private final TieredEngine tiered;
+    /**
+     * Counts map calls until the plan is promoted. Updates may be lost under contention, which only
+     * delays the promotion, so the field is deliberately not volatile.
+     */
+    private int calls;
+    /**
+     * The plan that replaces this one, this plan itself while it is being compiled, or {@code null}.
+     */
+    private volatile MappingPlan promoted;
+
+    /**
+     * Set on every lookup and cleared by the eviction sweep of {@link PlanCache}. A lost update only
+     * makes the plan look idle for one sweep, so the field is deliberately not volatile.
+     */
+    boolean referenced;
+
+    private MappingPlan(MapperEngine engine, Class<?> targetType, Class<?> sourceType, MappedProperty[] properties,
+                        TargetCreator creator, MappedProperty[] arguments, MapAccessors.Export export,
+                        PairMetrics metrics) {
+        this.targetType = targetType;
+        this.sourceType = sourceType;
+        this.properties = properties;
+        this.export = export;
+        this.engine = engine;
+        this.metrics = metrics;
+        this.tiered = engine instanceof TieredEngine ? (TieredEngine) engine : null;
+        this.propertyNames = new String[properties.length];
+        for (int i = 0; i < properties.length; i++) propertyNames[i] = properties[i].getName();
+        this.names = export == null && isMap(sourceType) ? MapAccessors.index(properties) : null;
+        this.copier = export == null && !isMap(sourceType) ? engine.copier(targetType, sourceType, properties) : null;
+        this.constructor = export == null && creator == null ? PropertyAccessors.constructor(targetType) : null;
+        this.creator = creator;
+        this.arguments = arguments;
+        boolean deep = false;
+        for (MappedProperty property : properties) deep |= property.isDeep();
+        if(arguments != null) for (MappedProperty argument : arguments) deep |= argument != null && argument.isDeep();
+        this.deep = deep;
+    }
+
+    Class<?> getTargetType() {
+        return targetType;
+    }
+
+    Class<?> getSourceType() {
+        return sourceType;
+    }
+
+    PairMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Marks the plan as used for the eviction sweep of {@link PlanCache}.
+     *
+     * @return the {@link #current} plan.
+     */
+    MappingPlan touch(){
+        if(!referenced) referenced = true;
+        return current();
+    }
+
+    /**
+     * @return the plan compiled by the next tier once this plan was promoted, otherwise this plan.
+     */
+    MappingPlan current(){
+        MappingPlan plan = promoted;
+        return plan != null ? plan : this;
+    }
+
+    /**
+     * @return a new instance of the target class, created through its no-argument constructor, or a map
+     * sized for the properties when the target is a map.
+     */
+    Object newTarget(){
+        if(creator != null)
+            throw new MapperException(String.format("%s is created by its @MappedCreator, it cannot be created empty",
+                    targetType.getName()));
+        return export != null ? export.newMap() : constructor.get();
+    }
+
+    boolean hasCreator(){
+        return creator != null;
+    }
+
+    /**
+     * @return a new target mapped from the source. A target with a {@link MappedCreator} is created from the
+     * values of the creator properties, then the other properties are set.
+     */
+    Object mapFrom(Mapper owner, Object source){
+        if(creator == null) {
+            Object target = newTarget();
+            map(owner, target, source);
+            return target;
+        }
+        if(tiered != null && promoted == null && ++calls >= tiered.getThreshold()) promote(owner);
+        if(metrics != null) {
+            long start = System.nanoTime();
+            Object target = createAndCopy(owner, source);
+            metrics.record(arguments.length + properties.length, System.nanoTime() - start);
+            return target;
+        }
+        return createAndCopy(owner, source);
+    }
+
+    private Object createAndCopy(Mapper owner, Object source){
+        if(!deep) {
+            Object target = create(source, null);
+            apply(target, source, null);
+            return target;
+        }
+        MappingContext context = new MappingContext(owner);
+        Object target = context.create(this, targetType, source);
+        context.drain();
+        return target;
+    }
+
+    /**
+     * Creates the target from the values of the creator properties, nested values are mapped right away.
+     */
+    Object create(Object source, MappingContext context){
+        Object[] values = new Object[arguments.length];
+        Map<?, ?> map = isMap(sourceType) ? (Map<?, ?>) source : null;
+        try {
+            for (int i = 0; i < arguments.length; i++) {
+                MappedProperty argument = arguments[i];
+                if(argument == null) continue;
+                values[i] = argument.convert(map != null ? map.get(argument.getSourceName()) : argument.read(source), context);
+            }
+        } catch (MapperException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MapperException(e);
+        }
+        return creator.create(values);
+    }
+
+    /**
+     * Copies the properties of the source to the target, and maps the objects reachable through nested
+     * properties to new targets. A tiered plan is promoted by the call that reaches the threshold.
+     */
+    void map(Mapper owner, Object target, Object source){
+        if(tiered != null && promoted == null && ++calls >= tiered.getThreshold()) promote(owner);
+        if(metrics != null) {
+            long start = System.nanoTime();
+            copy(owner, target, source);
+            metrics.record(properties.length, System.nanoTime() - start);
+            return;
+        }
+        copy(owner, target, source);
+    }
+
+    /**
+     * Compiles the plan with the next tier unless another call already does. Callers keep using this
+     * plan until the compiled one is published, and keep it for good if compiling fails.
+     */
+    private void promote(Mapper owner){
+        if(!PROMOTED.compareAndSet(this, null, this)) return;
+        MappingPlan plan;
+        try {
+            plan = compile(owner, tiered.getCompiled(), targetType, sourceType);
+        } catch (RuntimeException e) {
+            return;
+        }
+        promoted = plan;
+        if(metrics != null) metrics.compiled();
+    }
+
+    private void copy(Mapper owner, Object target, Object source){
+        if(!deep) {
+            apply(target, source, null);
+            return;
+        }
+        MappingContext context = new MappingContext(owner);
+        context.put(targetType, source, target);
+        apply(target, source, context);
+        context.drain();
+    }
+
+    /**
+     * @param context the context of the map call, or {@code null} when the plan has no nested properties
+     */
+    @SuppressWarnings("unchecked")
+    void apply(Object target, Object source, MappingContext context){
+        try {
+            if(export != null) {
+                export.write((Map<String, Object>) target, source);
+                return;
+            }
+            if(isMap(sourceType)) {
+                applyMap(target, (Map<?, ?>) source, context);
+                return;
+            }
+            if(copier != null) {
+                copier.copy(target, source, context);
+                return;
+            }
+            for (MappedProperty property : properties) {
+                property.apply(target, source, context);
+            }
+        } catch (MapperException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MapperException(e);
+        }
+    }
+
+    /**
+     * Sets the properties whose source names are keys of the map, the others keep their values. Small maps
+     * are walked through the name index, large ones are looked up by the name of each property.
+     */
+    private void applyMap(Object target, Map<?, ?> source, MappingContext context){
+        if(names != null && source.size() < properties.length) {
+            for (Map.Entry<?, ?> entry : source.entrySet()) {
+                int index = names.indexOf(entry.getKey());
+                if(index >= 0) properties[index].write(target, entry.getValue(), context);
+            }
+            return;
+        }
+        for (MappedProperty property : properties) {
+            Object value = source.get(property.getSourceName());
+            if(value != null || source.containsKey(property.getSourceName())) property.write(target, value, context);
+        }
+    }
+
+    /**
+     * Sets the properties the mode does not skip, or only compares the properties with the target when
+     * the mode is {@code null}. Values are compared after they are converted or filtered, nested values
+     * are compared with their own plans before they are mapped, see {@link #matches}.
+     *
+     * @return the properties that were set, or that differ from the target for a {@code null} mode
+     */
+    PropertyChanges patch(Mapper owner, Object target, Object source, PatchMode mode){
+        if(export != null) throw new MapperException("Cannot patch a map target");
+        boolean skipNulls = mode == PatchMode.SKIP_NULLS || mode == PatchMode.SKIP_NULLS_AND_UNCHANGED;
+        Function<Object, Object>[] current = mode != PatchMode.SKIP_NULLS ? targetReaders() : null;
+        MappingContext context = null;
+        if(deep && mode != null) {
+            context = new MappingContext(owner);
+            context.put(targetType, source, target);
+        }
+        Map<Object, Object> comparing = null;
+        Map<?, ?> map = isMap(sourceType) ? (Map<?, ?>) source : null;
+        PropertyChanges changes = new PropertyChanges(propertyNames);
+        try {
+            for (int i = 0; i < properties.length; i++) {
+                MappedProperty property = properties[i];
+                Object value;
+                if(map != null) {
+                    value = map.get(property.getSourceName());
+                    if(value == null && !map.containsKey(property.getSourceName())) continue;
+                }
+                else value = property.read(source);
+                boolean isDeep = property.isDeep();
+                if(!isDeep) value = property.convert(value, null);
+                if(value == null && skipNulls) continue;
+                if(current != null) {
+                    if(isDeep && comparing == null) comparing = new IdentityHashMap<>();
+                    if(isDeep ? property.matches(owner, value, current[i].apply(target), comparing)
+                            : Objects.deepEquals(value, current[i].apply(target))) continue;
+                }
+                changes.add(i);
+                if(mode == null) continue;
+                if(isDeep) property.write(target, value, context);
+                else property.set(target, value);
+            }
+            if(context != null) context.drain();
+        } catch (MapperException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MapperException(e);
+        }
+        return changes;
+    }
+
+    /**
+     * Compares a nested source value with the current value of a nested target, without mapping it.
+     * Pairs that are being compared count as equal, so cycles end. Targets created by a
+     * {@link MappedCreator} are not read back and always differ.
+     *
+     * @param comparing the current values by the source values that are being compared
+     * @return whether mapping the source would leave the current value as it is
+     */
+    static boolean matches(Mapper owner, Class<?> type, Object source, Object current, Map<Object, Object> comparing){
+        if(source == null || current == null) return source == current;
+        if(type.isInstance(source)) return source.equals(current);
+        if(!type.isInstance(current)) return false;
+        if(comparing.get(source) == current) return true;
+        MappingPlan plan = owner.getPlan(type, source.getClass());
+        if(plan.hasCreator() || plan.export != null) return false;
+        comparing.put(source, current);
+        Function<Object, Object>[] readers = plan.targetReaders();
+        Map<?, ?> map = isMap(plan.sourceType) ? (Map<?, ?>) source : null;
+        for (int i = 0; i < plan.properties.length; i++) {
+            MappedProperty property = plan.properties[i];
+            Object value;
+            if(map != null) {
+                value = map.get(property.getSourceName());
+                if(value == null && !map.containsKey(property.getSourceName())) continue;
+            }
+            else value = property.read(source);
+            if(!property.matches(owner, value, readers[i].apply(current), comparing)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Target getters are only needed to compare values, so plans that are never used for a patch do not
+     * look them up.
+     */
+    private Function<Object, Object>[] targetReaders(){
+        Function<Object, Object>[] readers = targetReaders;
+        if(readers != null) return readers;
+        readers = functions(properties.length);
+        for (int i = 0; i < properties.length; i++) {
+            MappedProperty property = properties[i];
+            Member getter = property.getField() != null ? property.getField()
+                    : PropertyAccessors.makeAccessible(Assert.notNull(
+                    findGetter(property.getType(), property.getName(), targetType),
+                    new MapperException(String.format("Cannot find get method with field named %s type %s",
+                            property.getName(), property.getType()))));
+            readers[i] = engine.getter(getter);
+        }
+        return targetReaders = readers;
+    }
+
+    static MappingPlan compile(Mapper owner, Class<?> targetType, Class<?> sourceType){
+        return compile(owner, owner.getEngine(), targetType, sourceType);
+    }
+
+    private static MappingPlan compile(Mapper owner, MapperEngine engine, Class<?> targetType, Class<?> sourceType){
+        PairMetrics metrics = owner.getMetrics() == null ? null : owner.getMetrics().pair(targetType, sourceType);
+        if(isMap(targetType))
+            return new MappingPlan(engine, targetType, sourceType, new MappedProperty[0], null, null,
+                    compileExport(engine, sourceType), metrics);
+        TargetCreator creator = TargetCreator.find(targetType, hierarchy(targetType));
+        MappedProperty[] arguments = creator == null ? null : new MappedProperty[creator.size()];
+        List<MappedProperty> properties = new ArrayList<>();
+        for(Class<?> curType = targetType;
+            curType != null && !Object.class.equals(curType);
+            curType = curType.getSuperclass()){
+            for (MappedDeclaration declaration : DECLARATIONS.get(curType)) {
+                if(!checkSourceType(declaration, sourceType)) continue;
+                int argument = creator == null ? -1 : creator.indexOf(declaration.getName());
+                if(argument >= 0)
+                    arguments[argument] = compileProperty(owner, engine, metrics, declaration, targetType, sourceType, true);
+                else
+                    properties.add(compileProperty(owner, engine, metrics, declaration, targetType, sourceType, false));
+            }
+        }
+        return new MappingPlan(engine, targetType, sourceType, properties.toArray(new MappedProperty[0]),
+                creator, arguments, null, metrics);
+    }
+
+    /**
+     * @return the creator of the class, or {@code null} when it declares none.
+     */
+    static TargetCreator creator(Class<?> type){
+        return TargetCreator.find(type, hierarchy(type));
+    }
+
+    /**
+     * @return the mapped properties of the class and of its superclasses.
+     */
+    private static List<MappedDeclaration> hierarchy(Class<?> type){
+        List<MappedDeclaration> declarations = new ArrayList<>();
+        for(Class<?> curType = type; curType != null && !Object.class.equals(curType); curType = curType.getSuperclass()){
+            Collections.addAll(declarations, DECLARATIONS.get(curType));
+        }
+        return declarations;
+    }
+
+    /**
+     * Reads every mapped property the source class declares, through its field when it is mapped by field
+     * access or its getter otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    private static MapAccessors.Export compileExport(MapperEngine engine, Class<?> sourceType){
+        List<String> keys = new ArrayList<>();
+        List<Function<Object, Object>> readers = new ArrayList<>();
+        for(Class<?> curType = sourceType;
+            curType != null && !Object.class.equals(curType);
+            curType = curType.getSuperclass()){
+            for (MappedDeclaration declaration : DECLARATIONS.get(curType)) {
+                Member getter = declaration.getField() != null ? declaration.getField()
+                        : PropertyAccessors.makeAccessible(Assert.notNull(
+                        findGetter(declaration.getType(), declaration.getName(), sourceType),
+                        new MapperException(String.format("Cannot find get method with field named %s type %s",
+                                declaration.getName(), declaration.getType()))));
+                keys.add(declaration.getSourceName());
+                readers.add(engine.getter(getter));
+            }
+        }
+        return new MapAccessors.Export(keys.toArray(new String[0]), readers.toArray(functions(readers.size())));
+    }
+
+    /**
+     * Maps are read and written by the source names of the properties, unless their class declares mapped
+     * properties itself.
+     */
+    static boolean isMap(Class<?> type){
+        return Map.class.isAssignableFrom(type) && !isMappedType(type);
+    }
+
+    /**
+     * Checks that every mapped property of the class and of its superclasses has a setter, or is passed to
+     * its creator.
+     *
+     * @return the source classes the properties are restricted to by {@code targetClass}
+     */
+    static Set<Class<?>> validate(Class<?> targetType){
+        Set<Class<?>> sourceTypes = new LinkedHashSet<>();
+        TargetCreator creator = TargetCreator.find(targetType, hierarchy(targetType));
+        for(Class<?> curType = targetType;
+            curType != null && !Object.class.equals(curType);
+            curType = curType.getSuperclass()){
+            for (MappedDeclaration declaration : DECLARATIONS.get(curType)) {
+                if(creator == null || creator.indexOf(declaration.getName()) < 0) requireWriter(declaration);
+                if(declaration.getSourceClasses() == null) continue;
+                for (Class<?> sourceType : declaration.getSourceClasses()) sourceTypes.add(sourceType);
+            }
+        }
+        return sourceTypes;
+    }
+
+    /**
+     * @return whether the class itself declares mapped properties or a {@code @MappedConfig}.
+     */
+    static boolean isMapped(Class<?> type){
+        return DECLARATIONS.get(type).length > 0 || type.isAnnotationPresent(MappedConfig.class);
+    }
+
+    /**
+     * @return the properties the class itself declares.
+     */
+    static MappedDeclaration[] declarations(Class<?> type){
+        return DECLARATIONS.get(type);
+    }
+
+    static void requireWriter(MappedDeclaration declaration){
+        Assert.beTrue(declaration.hasWriter(),
+                new MapperException(String.format("Cannot find set method with field named %s type %s",
+                        declaration.getName(), declaration.getType())));
+    }
+
+    /**
+     * @param argument whether the property is passed to the creator of the target instead of being set
+     */
+    private static MappedProperty compileProperty(Mapper owner, MapperEngine engine, PairMetrics metrics,
+                                                  MappedDeclaration declaration, Class<?> targetType, Class<?> sourceType,
+                                                  boolean argument){
+        if(!argument) requireWriter(declaration);
+        Function<Object, Object> filter = declaration.getFilterClass() == null ? null
+                : owner.getFilters().resolve(declaration.getFilterClass());
+        if(filter != null && metrics != null) filter = metrics.counting(filter);
+        if(isMap(sourceType)) return compileMapProperty(owner, engine, declaration, filter, argument);
+        Member getter = declaration.getField() == null ? null : findField(declaration.getSourceName(), sourceType);
+        if(getter == null) getter = PropertyAccessors.makeAccessible(Assert.notNull(
+                findGetter(declaration.getType(), declaration.getSourceName(), sourceType),
+                new MapperException(String.format("Cannot find get method with field named %s type %s",
+                        declaration.getSourceName(), declaration.getType()))));
+        Class<?> valueType = getter instanceof Method ? ((Method) getter).getReturnType() : ((Field) getter).getType();
+        Class<?> nestedType = isNested(declaration.getType(), valueType) ? declaration.getType() : null;
+
+        Member setter = argument ? null : declaration.getField() != null ? declaration.getField() : declaration.getSetter();
+        if(setter == null && !argument && declaration.getType().isPrimitive()
+                && (declaration.getType().equals(valueType) || ConverterRegistry.isWidening(valueType, declaration.getType())))
+            setter = findSetter(declaration, targetType);
+
+        Type genericType = declaration.getGenericType();
+        if(genericType == null) {
+            Method generatedSetter = setter instanceof Method ? (Method) setter : findSetter(declaration, targetType);
+            genericType = generatedSetter != null ? generatedSetter.getGenericParameterTypes()[0] : declaration.getType();
+        }
+        ContainerConverter container = ContainerConverter.of(declaration.getCollectionMode(), declaration.getType(),
+                genericType, valueType,
+                getter instanceof Method ? ((Method) getter).getGenericReturnType() : ((Field) getter).getGenericType(),
+                owner.getConverters());
+        Function<Object, Object> converter = filter == null && nestedType == null && container == null
+                ? owner.getConverters().resolve(valueType, declaration.getType()) : null;
+        if(filter == null && nestedType == null && container == null && converter == null)
+            Assert.beTrue(ConverterRegistry.isAssignable(valueType, declaration.getType()),
+                    new MapperException(String.format("Cannot convert %s to %s of property %s, register a converter",
+                            valueType.getName(), declaration.getType().getName(), declaration.getName())));
+        return new MappedProperty(declaration, getter, setter, engine, filter, nestedType, container, converter);
+    }
+
+    /**
+     * Compiles a property read from a map, whose values are converted by their class at map time.
+     */
+    private static MappedProperty compileMapProperty(Mapper owner, MapperEngine engine, MappedDeclaration declaration,
+                                                     Function<Object, Object> filter, boolean argument){
+        Class<?> type = declaration.getType();
+        Class<?> nestedType = isMappedType(type) ? type : null;
+        ContainerConverter container = ContainerConverter.of(declaration.getCollectionMode(), type,
+                declaration.getGenericType() != null ? declaration.getGenericType() : type, Object.class, Object.class,
+                owner.getConverters());
+        Function<Object, Object> converter = filter == null && nestedType == null && container == null
+                ? owner.getConverters().dynamic(type) : null;
+        Member setter = argument ? null : declaration.getField() != null ? declaration.getField() : declaration.getSetter();
+        return new MappedProperty(declaration, null, setter, engine, filter, nestedType, container, converter);
+    }
+
+    /**
+     * A property is nested when its class declares mapped properties itself and the source value cannot
+     * be assigned to it as it is.
+     */
+    private static boolean isNested(Class<?> type, Class<?> valueType){
+        return !type.isAssignableFrom(valueType) && isMappedType(type);
+    }
+
+    /**
+     * @return whether the class or one of its superclasses declares mapped properties or a {@code @MappedConfig}.
+     */
+    static boolean isMappedType(Class<?> type){
+        if(type.isPrimitive() || type.isArray()) return false;
+        for(Class<?> curType = type; curType != null && !Object.class.equals(curType); curType = curType.getSuperclass()){
+            if(isMapped(curType)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the accessible instance field of the source class or its superclasses with the given name,
+     * or {@code null} to read the value through the getter.
+     */
+    private static Field findField(String name, Class<?> sourceType){
+        for(Class<?> curType = sourceType; curType != null; curType = curType.getSuperclass()){
+            Field field;
+            try {
+                field = curType.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                continue;
+            }
+            if(Modifier.isStatic(field.getModifiers())) return null;
+            return PropertyAccessors.canAccess(PropertyAccessors.makeAccessible(field)) ? field : null;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the setter of a generated declaration, whose writer would box a primitive value.
+     */
+    static Method findSetter(MappedDeclaration declaration, Class<?> targetType){
+        try {
+            return targetType.getMethod(declaration.getSetterName(), declaration.getType());
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object>[] functions(int length){
+        return (Function<Object, Object>[]) new Function<?, ?>[length];
+    }
+
+    static Method findGetter(Class<?> type, String name, Class<?> objType){
+        String prefix = (boolean.class.equals(type) || Boolean.class.equals(type)) ? "is" : "get";
+        try {
+            return objType.getMethod(prefix + MappedDeclaration.capitalize(name));
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A plan is compiled per concrete source class, so a property restricted by {@code targetClass} is
+     * either part of the plan or not, and costs nothing when the plan maps. Subclasses of the listed
+     * classes, e.g. ORM proxies, get the properties of the class they extend.
+     */
+    private static boolean checkSourceType(MappedDeclaration declaration, Class<?> sourceType){
+        if(declaration.getSourceClasses() == null) return true;
+        for(Class<?> c : declaration.getSourceClasses()) if(c.isAssignableFrom(sourceType)) return true;
+        return false;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+/**
+ * A snapshot of the counters of one target/source class pair, see {@link MapperMetrics}.
+ */
+public final class MappingStats {
+    private final String targetType;
+    private final String sourceType;
+    private final long callCount;
+    private final long propertyCount;
+    private final long filterCount;
+    private final long hitCount;
+    private final long compileCount;
+    private final long evictionCount;
+    private final long totalNanos;
+    private final long[] latencyHistogram;
+
+    MappingStats(String targetType, String sourceType, long callCount, long propertyCount, long filterCount,
+                 long hitCount, long compileCount, long evictionCount, long totalNanos, long[] latencyHistogram) {
+        this.targetType = targetType;
+        this.sourceType = sourceType;
+        this.callCount = callCount;
+        this.propertyCount = propertyCount;
+        this.filterCount = filterCount;
+        this.hitCount = hitCount;
+        this.compileCount = compileCount;
+        this.evictionCount = evictionCount;
+        this.totalNanos = totalNanos;
+        this.latencyHistogram = latencyHistogram;
+    }
+
+    public String getTargetType() {
+        return targetType;
+    }
+
+    public String getSourceType() {
+        return sourceType;
+    }
+
+    /**
+     * @return how many objects were mapped, nested objects are part of the call that reached them.
+     */
+    public long getCallCount() {
+        return callCount;
+    }
+
+    /**
+     * @return how many properties the calls copied.
+     */
+    public long getPropertyCount() {
+        return propertyCount;
+    }
+
+    /**
+     * @return how many times the filters of the pair were called.
+     */
+    public long getFilterCount() {
+        return filterCount;
+    }
+
+    /**
+     * @return how many lookups found the plan of the pair in the plan cache.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return how many times the plan was compiled, that is the plan cache misses of the pair.
+     */
+    public long getCompileCount() {
+        return compileCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMeanNanos() {
+        return callCount == 0 ? 0 : totalNanos / callCount;
+    }
+
+    /**
+     * @return the call counts by duration, element {@code i} counts the calls that took less than
+     * {@code 2^i} and at least {@code 2^(i-1)} nanoseconds.
+     */
+    public long[] getLatencyHistogram() {
+        return latencyHistogram.clone();
+    }
+
+    public long getLatencyP50Nanos() {
+        return getLatencyPercentileNanos(0.5);
+    }
+
+    public long getLatencyP99Nanos() {
+        return getLatencyPercentileNanos(0.99);
+    }
+
+    /**
+     * @return the upper bound of the histogram bucket the percentile falls in, so at most twice the
+     * actual duration.
+     */
+    public long getLatencyPercentileNanos(double percentile){
+        long count = 0;
+        for (long bucket : latencyHistogram) count += bucket;
+        if(count == 0) return 0;
+        long rank = (long) Math.ceil(percentile * count);
+        for (int i = 0; i < latencyHistogram.length; i++) {
+            rank -= latencyHistogram[i];
+            if(rank <= 0) return 1L << i;
+        }
+        return 1L << (latencyHistogram.length - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "MappingStats{" +
+                "targetType=" + targetType +
+                ", sourceType=" + sourceType +
+                ", callCount=" + callCount +
+                ", propertyCount=" + propertyCount +
+                ", filterCount=" + filterCount +
+                ", hitCount=" + hitCount +
+                ", compileCount=" + compileCount +
+                ", evictionCount=" + evictionCount +
+                ", meanNanos=" + getMeanNanos() +
+                '}';
+    }
+}
@@ -24,243 +24,212 @@ package io.dynabiz.mapper;
 
 
 
-import io.dynabiz.util.Assert;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.function.Function;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 /**
  * Created by Deyu Heng on 2018/09/3.
+ *
+ * <p>Static access to a default {@link Mapper}, see {@link #setDefault} to configure it.
  */
 public class ObjectMapper {
 
+    /**
+     * Inputs smaller than this are mapped on the calling thread by {@link #mapAllParallel}.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = Mapper.DEFAULT_PARALLEL_THRESHOLD;
+
+    private static volatile Mapper defaultMapper = Mapper.builder().build();
+
+    public static Mapper getDefault(){
+        return defaultMapper;
+    }
+
+    /**
+     * Replaces the mapper the static methods delegate to. The previous one is {@link Mapper#clear cleared},
+     * so its plans are not kept with their classes.
+     */
+    public static void setDefault(Mapper mapper){
+        Mapper previous = defaultMapper;
+        defaultMapper = Objects.requireNonNull(mapper, "Mapper could not be null.");
+        if(previous != mapper) previous.clear();
+    }
 
     public static <T, ST> T mapFrom(Class<T> targetType, ST sources){
-        return mapFrom(targetType, sources, null);
+        return getDefault().mapFrom(targetType, sources);
     }
 
     public static <T, ST> T mapFrom(Class<T> targetType, ST sources,  Mapping<ST, T> mapping){
-        T target;
-        try {
-            target = targetType.newInstance();
-        } catch (InstantiationException | IllegalAccessException e) {
-            throw new MapperException(e);
-        }
-        map(target, sources, mapping);
-        return target;
+        return getDefault().mapFrom(targetType, sources, mapping);
+    }
+
+    public static <T, ST> List<T> mapAll(Class<T> targetType, Collection<? extends ST> sources){
+        return getDefault().mapAll(targetType, sources);
+    }
+
+    public static <T, ST> List<T> mapAll(Class<T> targetType, Collection<? extends ST> sources, Mapping<ST, T> mapping){
+        return getDefault().mapAll(targetType, sources, mapping);
+    }
+
+    public static <T, ST> List<T> mapAll(Class<T> targetType, ST[] sources){
+        return getDefault().mapAll(targetType, sources);
+    }
+
+    public static <T, ST> List<T> mapAll(Class<T> targetType, ST[] sources, Mapping<ST, T> mapping){
+        return getDefault().mapAll(targetType, sources, mapping);
+    }
+
+    /**
+     * @see Mapper#mapAll(List, Class, Collection)
+     */
+    public static <T, ST, L extends List<? super T>> L mapAll(L targets, Class<T> targetType,
+                                                              Collection<? extends ST> sources){
+        return getDefault().mapAll(targets, targetType, sources);
+    }
+
+    public static <T, ST, L extends List<? super T>> L mapAll(L targets, Class<T> targetType,
+                                                              Collection<? extends ST> sources, Mapping<ST, T> mapping){
+        return getDefault().mapAll(targets, targetType, sources, mapping);
     }
 
     public static <T, ST> void map(T target, ST sources){
-        map(target, sources, null);
+        getDefault().map(target, sources);
     }
 
-    @SuppressWarnings("unchecked")
     public static <T, ST> void map(T target, ST sources, Mapping<ST, T> mapping){
-        Objects.requireNonNull(target, "Target object could not be null.");
-        Objects.requireNonNull(target, "Source object could not be null.");
-
-        Class curType = target.getClass();
-        Map<Class, Function> filterCache = new HashMap<>();
-        do{
-            mapDeclaredFields(curType, target, sources, filterCache);
-        }while (!Object.class.equals(curType = curType.getSuperclass()));
-
-        if(mapping != null)mapping.mapTo(sources, target);
-    }
-
-    private static void mapDeclaredFields(Class targetType, Object target, Object sources,
-                                          Map<Class, Function> filterCache){
-        MappedConfig config = target.getClass().getAnnotation(MappedConfig.class);
-        MappedFieldDescription fieldDescription = new MappedFieldDescription();
-        Class sourceType = sources.getClass();
-        Field[] fields = getMappedFields(target);
-        for (Field field : fields) {
-
-            fieldDescription.setConfigs(field.getType(), field.getName(), config, field.getAnnotation(Mapped.class));
-            if(checkSourceType(fieldDescription, targetType))
-                applyValue(
-                        fieldDescription,
-                        target,
-                        Assert.notNull(findSetter(field.getType(), field.getName(), targetType),
-                                new MapperException(
-                                        String.format("Cannot find get method with field named %s type %s",
-                                                field.getName(),
-                                                field.getType()
-                                        )
-                                )
-                        ),
-                        sourceType,
-                        sources,
-                        filterCache
-                );
-        }
-
-        Method[] methods = getMappedSetter(target);
-        for (Method method : methods) {
-            fieldDescription.setConfigs(
-                    method.getParameterTypes()[0],
-                    getFieldNameFromSetter(method.getName()),
-                    config,
-                    method.getAnnotation(Mapped.class)
-            );
-            if(checkSourceType(fieldDescription, targetType)) applyValue(
-                    fieldDescription,
-                    target,
-                    method,
-                    sourceType,
-                    sources,
-                    filterCache);
-        }
-
-    }
-
-
-    @SuppressWarnings("unchecked")
-    private static void applyValue(MappedFieldDescription fieldDescription, Object target, Method setter,
-                                   Class sourceType, Object source, Map<Class, Function> filterCache){
-        if(1 != setter.getParameterCount()) throw new IllegalStateException("");
-
-        Object value = readValue(fieldDescription.type, fieldDescription.sourceFieldName, sourceType, source);
-        if(fieldDescription.filterClass != null){
-            Function mappingFilter = filterCache.get(fieldDescription.filterClass);
-            if(mappingFilter == null) {
-                try {
-                    filterCache.put(fieldDescription.filterClass,
-                            mappingFilter = (Function)fieldDescription.filterClass.newInstance());
-                    setter.invoke(source, mappingFilter.apply(value));
-                } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-                    throw new MapperException(e);
-                }
-            }
-
-        }
-        else {
-            try {
-                setter.invoke(target, readValue(fieldDescription.type, fieldDescription.sourceFieldName, sourceType, source));
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                throw new MapperException(e);
-            }
-        }
-
-
-    }
-
-
-    private static Object readValue(Class type, String name, Class objType, Object source){
-        Method getter = Assert.notNull(findGetter(type, name, objType),
-                new MapperException(String.format("Cannot find get method with field named %s type %s", name, type)));
-        try {
-            return getter.invoke(source);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new MapperException(e);
-        }
-    }
-
-    private static Field[] getMappedFields(Object o){
-        Field[] fields = o.getClass().getDeclaredFields();
-        Field[] mappedFields = new Field[fields.length];
-        int mappedCount = 0;
-        for (Field field : fields) {
-            if (null != field.getAnnotation(Mapped.class)) {
-                mappedFields[mappedCount++] = field;
-            }
-        }
-        return Arrays.copyOf(mappedFields, mappedCount);
-    }
-
-    private static Method[] getMappedSetter(Object o){
-        Method[] methods = o.getClass().getDeclaredMethods();
-        Method[] mappedSetters = new Method[methods.length];
-        int mappedCount = 0;
-        for (Method method : methods) {
-            if (null != method.getAnnotation(Mapped.class)) {
-                mappedSetters[mappedCount++] = method;
-            }
-        }
-        return Arrays.copyOf(mappedSetters, mappedCount);
-    }
-
-    @SuppressWarnings("unchecked")
-    private static Method findGetter(Class type, String name, Class objType){
-        if(Character.isLowerCase(name.charAt(0)) && Character.isLowerCase(name.charAt(1))) {
-            char[] chars = name.toCharArray();
-            chars[0]-=32;
-            name = new String(chars);
-        }
-        String prefix = (boolean.class.equals(type) || Boolean.class.equals(type)) ? "is" : "get";
-        try {
-            return objType.getMethod(prefix + name);
-        } catch (NoSuchMethodException e) {
-            return null;
-        }
-    }
-
-    @SuppressWarnings("unchecked")
-    private static Method findSetter(Class type, String name, Class objType){
-        if(Character.isLowerCase(name.charAt(0)) && Character.isLowerCase(name.charAt(1))) {
-            char[] chars = name.toCharArray();
-            chars[0]-=32;
-            name = new String(chars);
-        }
-        String prefix = (boolean.class.equals(type) || Boolean.class.equals(type)) ? "is" : "set";
-        Method[] methods = objType.getMethods();
-        for (Method method : methods) {
-            if(method.getName().equals(prefix + name)) return method;
-        }
-        return null;
-    }
-
-    private static boolean checkSourceType(MappedFieldDescription fieldDescription, Class sourceType){
-        if(fieldDescription.sourceClasses == null) return true;
-        for(Class c : fieldDescription.sourceClasses) if(sourceType.equals(c)) return true;
-        return false;
-    }
-
-    private static String getFieldNameFromSetter(String methodName){
-        if(methodName.startsWith("set")) methodName = methodName.substring(3);
-        if(methodName.startsWith("is")) methodName = methodName.substring(2);
-
-        if(Character.isLowerCase(methodName.charAt(0)))
-            return methodName;
-        else{
-            char[] chars = methodName.toCharArray();
-            chars[0]+=32;
-            return new String(chars);
-        }
-    }
-
-    private static class MappedFieldDescription {
-        private Class[] sourceClasses;
-        private String sourceFieldName;
-        private String fieldName;
-        private Class filterClass;
-        private Class type;
-        private String setterName;
-
-        private void setConfigs(Class type, String fieldName, MappedConfig config, Mapped mapped){
-            this.type = type;
-            this.setterName = null;
-            this.fieldName = fieldName;
-            this.sourceFieldName = mapped.name().isEmpty() ? fieldName : mapped.name();
-            this.sourceClasses = mapped.targetClass().length == 0 ?
-                    (config == null ?
-                            null :
-                            config.targetClass().length == 0 ?
-                                    null :
-                                    config.targetClass()) :
-                    mapped.targetClass();
-            this.filterClass = void.class.equals(mapped.filter()) ?
-                    (config == null ?
-                            null :
-                            void.class.equals(config.filter()) ?
-                                    null :
-                                    config.filter()) :
-                    mapped.filter();
-        }
+        getDefault().map(target, sources, mapping);
+    }
+
+    public static <T> T reset(T target){
+        return getDefault().reset(target);
+    }
+
+    public static <T, ST> PropertyChanges patch(T target, ST source){
+        return getDefault().patch(target, source);
+    }
+
+    public static <T, ST> PropertyChanges patch(T target, ST source, PatchMode mode){
+        return getDefault().patch(target, source, mode);
+    }
+
+    public static <T, ST> PropertyChanges diff(T target, ST source){
+        return getDefault().diff(target, source);
+    }
+
+    public static Map<String, Object> mapToMap(Object source){
+        return getDefault().mapToMap(source);
+    }
+
+    public static <T> ColumnBatch<T> toColumns(Class<T> type, Collection<? extends T> beans){
+        return getDefault().toColumns(type, beans);
+    }
+
+    public static <T> ColumnBatch<T> newColumns(Class<T> type, int size){
+        return getDefault().newColumns(type, size);
+    }
+
+    public static <T> List<T> fromColumns(ColumnBatch<T> batch){
+        return getDefault().fromColumns(batch);
+    }
+
+    public static <T, ST> List<T> mapAllParallel(Class<T> targetType, Collection<? extends ST> sources){
+        return getDefault().mapAllParallel(targetType, sources);
+    }
+
+    public static <T, ST> List<T> mapAllParallel(Class<T> targetType, Collection<? extends ST> sources,
+                                                 Mapping<ST, T> mapping){
+        return getDefault().mapAllParallel(targetType, sources, mapping);
+    }
+
+    /**
+     * @see Mapper#mapAllParallel(Class, Collection, Mapping, ForkJoinPool, int)
+     */
+    public static <T, ST> List<T> mapAllParallel(Class<T> targetType, Collection<? extends ST> sources,
+                                                 Mapping<ST, T> mapping, ForkJoinPool pool, int threshold){
+        return getDefault().mapAllParallel(targetType, sources, mapping, pool, threshold);
+    }
+
+    public static <T, ST> Stream<T> mapStream(Class<T> targetType, Stream<? extends ST> sources){
+        return getDefault().mapStream(targetType, sources);
+    }
+
+    /**
+     * @see Mapper#mapStream(Class, Stream, Mapping)
+     */
+    public static <T, ST> Stream<T> mapStream(Class<T> targetType, Stream<? extends ST> sources,
+                                              Mapping<ST, T> mapping){
+        return getDefault().mapStream(targetType, sources, mapping);
+    }
+
+    public static <T, ST> Iterator<T> mapIterator(Class<T> targetType, Iterator<? extends ST> sources){
+        return getDefault().mapIterator(targetType, sources);
+    }
+
+    /**
+     * @see Mapper#mapIterator(Class, Iterator, Mapping)
+     */
+    public static <T, ST> Iterator<T> mapIterator(Class<T> targetType, Iterator<? extends ST> sources,
+                                                  Mapping<ST, T> mapping){
+        return getDefault().mapIterator(targetType, sources, mapping);
+    }
+
+    public static <T, ST> Iterable<T> mapIterable(Class<T> targetType, Iterable<? extends ST> sources){
+        return getDefault().mapIterable(targetType, sources);
+    }
+
+    /**
+     * @see Mapper#mapIterable(Class, Iterable, Mapping)
+     */
+    public static <T, ST> Iterable<T> mapIterable(Class<T> targetType, Iterable<? extends ST> sources,
+                                                  Mapping<ST, T> mapping){
+        return getDefault().mapIterable(targetType, sources, mapping);
+    }
+
+    /**
+     * @see Mapper#register(Class, Class[])
+     */
+    public static void register(Class<?> targetType, Class<?>... sourceTypes){
+        getDefault().register(targetType, sourceTypes);
+    }
+
+    public static List<Class<?>> registerPackage(String packageName){
+        return getDefault().registerPackage(packageName);
+    }
+
+    /**
+     * @see Mapper#registerPackage(String, ClassLoader)
+     */
+    public static List<Class<?>> registerPackage(String packageName, ClassLoader loader){
+        return getDefault().registerPackage(packageName, loader);
+    }
+
+    public static List<Class<?>> registerIndexed(){
+        return getDefault().registerIndexed();
+    }
+
+    /**
+     * @see Mapper#registerIndexed(ClassLoader)
+     */
+    public static List<Class<?>> registerIndexed(ClassLoader loader){
+        return getDefault().registerIndexed(loader);
+    }
+
+    /**
+     * @see Mapper#warmUp(Class, Class, int)
+     */
+    public static void warmUp(Class<?> targetType, Class<?> sourceType, int iterations){
+        getDefault().warmUp(targetType, sourceType, iterations);
+    }
+
+    /**
+     * @see Mapper#warmUpWith(Class, Object, int)
+     */
+    public static <T, ST> void warmUpWith(Class<T> targetType, ST sample, int iterations){
+        getDefault().warmUpWith(targetType, sample, iterations);
     }
 }
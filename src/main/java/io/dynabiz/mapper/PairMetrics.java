@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * The counters of one target/source class pair of a {@link MapperMetrics}. Counters are {@link LongAdder}s,
+ * which spread concurrent updates over cells, and durations are counted in power of two buckets.
+ *
+ * <p>The pair only keeps the class names, so it does not keep classes from being unloaded, and it outlives
+ * the evictions of its plan.
+ */
+final class PairMetrics {
+    /**
+     * Bucket {@code i} counts durations below {@code 2^i} nanoseconds, the last one all longer durations.
+     */
+    static final int BUCKETS = 40;
+
+    private final String targetType;
+    private final String sourceType;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder properties = new LongAdder();
+    private final LongAdder filterCalls = new LongAdder();
+    private final LongAdder compiles = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder[] latency = new LongAdder[BUCKETS];
+
+    PairMetrics(String targetType, String sourceType) {
+        this.targetType = targetType;
+        this.sourceType = sourceType;
+        for (int i = 0; i < BUCKETS; i++) latency[i] = new LongAdder();
+    }
+
+    void record(int propertyCount, long nanos){
+        calls.increment();
+        properties.add(propertyCount);
+        totalNanos.add(nanos);
+        latency[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos))].increment();
+    }
+
+    void hit(){
+        hits.increment();
+    }
+
+    void compiled(){
+        compiles.increment();
+    }
+
+    void evicted(){
+        evictions.increment();
+    }
+
+    /**
+     * @return the filter, counting its calls.
+     */
+    Function<Object, Object> counting(Function<Object, Object> filter){
+        return value -> {
+            filterCalls.increment();
+            return filter.apply(value);
+        };
+    }
+
+    MappingStats snapshot(){
+        long[] histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) histogram[i] = latency[i].sum();
+        return new MappingStats(targetType, sourceType, calls.sum(), properties.sum(), filterCalls.sum(),
+                hits.sum(), compiles.sum(), evictions.sum(), totalNanos.sum(), histogram);
+    }
+
+    void reset(){
+        calls.reset();
+        hits.reset();
+        properties.reset();
+        filterCalls.reset();
+        compiles.reset();
+        evictions.reset();
+        totalNanos.reset();
+        for (LongAdder bucket : latency) bucket.reset();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Maps a range of the source array into the same range of the target array, so the output keeps the
+ * input order. Ranges are split in halves until they fit into one chunk, each chunk then runs its own
+ * {@link BatchMapper} over the shared, immutable plans.
+ */
+final class ParallelMapTask<T, ST> extends RecursiveAction {
+    private final Mapper owner;
+    private final Class<T> targetType;
+    private final Mapping<ST, T> mapping;
+    private final Object[] sources;
+    private final Object[] targets;
+    private final int from;
+    private final int to;
+    private final int chunkSize;
+
+    ParallelMapTask(Mapper owner, Class<T> targetType, Mapping<ST, T> mapping, Object[] sources,
+                    Object[] targets, int from, int to, int chunkSize) {
+        this.owner = owner;
+        this.targetType = targetType;
+        this.mapping = mapping;
+        this.sources = sources;
+        this.targets = targets;
+        this.from = from;
+        this.to = to;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void compute() {
+        if(to - from <= chunkSize) {
+            BatchMapper<T, ST> mapper = new BatchMapper<>(owner, targetType, mapping);
+            for (int i = from; i < to; i++) {
+                targets[i] = mapper.map((ST) sources[i]);
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(
+                new ParallelMapTask<>(owner, targetType, mapping, sources, targets, from, middle, chunkSize),
+                new ParallelMapTask<>(owner, targetType, mapping, sources, targets, middle, to, chunkSize)
+        );
+    }
+}
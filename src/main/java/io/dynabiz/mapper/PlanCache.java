@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The plans of one {@link Mapper}, keyed by target class and source class.
+ *
+ * <p>A plan refers to both of its classes, so it is kept in a {@link ClassValue} table of the class whose
+ * class loader sees the other one: the target class, unless only the source class loader sees the
+ * target. The other class then lives at least as long as the class that keeps the plan, and neither
+ * class of a redeployed module is kept from being unloaded by a plan of a class of a longer lived
+ * loader, such as a shared entity or a {@link java.util.HashMap} source. Classes of unrelated loaders
+ * keep their plans on the target class.
+ *
+ * <p>The cache remembers its plans only through weak references, and once it holds {@code maximumSize}
+ * plans a CLOCK sweep evicts the first plan that was not looked up since the previous sweep. The tables
+ * are values of a {@link ClassValue} of this cache, so the plans of a cache that is no longer used stay
+ * with their classes until {@link #clear} drops them or the classes are unloaded.
+ *
+ * <p>A plan promoted by a {@link TieredEngine} stays cached behind the plan it replaces, the lookup
+ * returns the promoted one.
+ */
+final class PlanCache {
+    private final Mapper owner;
+    private final int maximumSize;
+    private final ClassValue<Table> tables = new ClassValue<Table>() {
+        @Override
+        protected Table computeValue(Class<?> type) {
+            return new Table();
+        }
+    };
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Guarded by this, only touched when a plan is compiled.
+     */
+    private final List<Entry> entries = new ArrayList<>();
+    private int hand;
+
+    PlanCache(Mapper owner, int maximumSize) {
+        this.owner = owner;
+        this.maximumSize = maximumSize;
+    }
+
+    MappingPlan get(Class<?> targetType, Class<?> sourceType){
+        return lookup(targetType, sourceType).touch();
+    }
+
+    /**
+     * @return the plan as it is cached, callers that keep it {@link MappingPlan#touch touch} it on every use.
+     */
+    MappingPlan lookup(Class<?> targetType, Class<?> sourceType){
+        requests.increment();
+        MappingPlan plan = tables.get(targetType).bySource.get(sourceType);
+        if(plan == null) plan = tables.get(sourceType).byTarget.get(targetType);
+        if(plan == null) return compile(targetType, sourceType);
+        if(plan.getMetrics() != null) plan.getMetrics().hit();
+        return plan;
+    }
+
+    /**
+     * Drops every plan from the tables of its classes.
+     */
+    synchronized void clear(){
+        for (Entry entry : entries) {
+            MappingPlan plan = entry.plan.get();
+            if(plan != null) remove(plan, entry.onSource);
+        }
+        entries.clear();
+        hand = 0;
+    }
+
+    synchronized int size(){
+        return entries.size();
+    }
+
+    CacheStats stats(){
+        long missCount = misses.sum();
+        return new CacheStats(Math.max(0, requests.sum() - missCount), missCount, evictions.sum(), size());
+    }
+
+    /**
+     * Compiles outside of any lock, a plan may look up the plans of its nested classes. Only the plan
+     * that is stored first is admitted, the plans of racing threads are dropped and their lookups hit.
+     */
+    private MappingPlan compile(Class<?> targetType, Class<?> sourceType){
+        MappingPlan plan = MappingPlan.compile(owner, targetType, sourceType);
+        boolean onSource = !sees(targetType, sourceType) && sees(sourceType, targetType);
+        ConcurrentHashMap<Class<?>, MappingPlan> table = onSource
+                ? tables.get(sourceType).byTarget
+                : tables.get(targetType).bySource;
+        MappingPlan stored = table.putIfAbsent(onSource ? targetType : sourceType, plan);
+        if(stored != null) {
+            if(stored.getMetrics() != null) stored.getMetrics().hit();
+            return stored;
+        }
+        admit(plan, onSource);
+        return plan;
+    }
+
+    /**
+     * @return whether the class loader of {@code type} is, or delegates to, the loader of {@code other}.
+     */
+    private static boolean sees(Class<?> type, Class<?> other){
+        ClassLoader loader = other.getClassLoader();
+        if(loader == null) return true;
+        for (ClassLoader l = type.getClassLoader(); l != null; l = l.getParent()) {
+            if(l == loader) return true;
+        }
+        return false;
+    }
+
+    private synchronized void admit(MappingPlan plan, boolean onSource){
+        misses.increment();
+        if(plan.getMetrics() != null) plan.getMetrics().compiled();
+        while (entries.size() >= maximumSize) evictOne();
+        entries.add(new Entry(plan, onSource));
+    }
+
+    /**
+     * Removes one entry whose classes or plan are gone, or the next plan that has not been looked up
+     * since the hand last passed it. Ends within two turns of the hand.
+     */
+    private void evictOne(){
+        while (true) {
+            if(hand >= entries.size()) hand = 0;
+            Entry entry = entries.get(hand);
+            MappingPlan plan = entry.plan.get();
+            if(plan == null) {
+                removeAtHand();
+                return;
+            }
+            if(plan.referenced) {
+                plan.referenced = false;
+                hand++;
+                continue;
+            }
+            removeAtHand();
+            remove(plan, entry.onSource);
+            evictions.increment();
+            if(plan.getMetrics() != null) plan.getMetrics().evicted();
+            return;
+        }
+    }
+
+    private void remove(MappingPlan plan, boolean onSource){
+        if(onSource) tables.get(plan.getSourceType()).byTarget.remove(plan.getTargetType(), plan);
+        else tables.get(plan.getTargetType()).bySource.remove(plan.getSourceType(), plan);
+    }
+
+    private void removeAtHand(){
+        int last = entries.size() - 1;
+        entries.set(hand, entries.get(last));
+        entries.remove(last);
+    }
+
+    /**
+     * The plans kept by one class, by the class they are paired with.
+     */
+    private static final class Table {
+        private final ConcurrentHashMap<Class<?>, MappingPlan> bySource = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Class<?>, MappingPlan> byTarget = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Refers to its plan weakly, a plan is gone once the class that kept it is unloaded.
+     */
+    private static final class Entry {
+        private final WeakReference<MappingPlan> plan;
+        private final boolean onSource;
+
+        private Entry(MappingPlan plan, boolean onSource) {
+            this.plan = new WeakReference<>(plan);
+            this.onSource = onSource;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Copies primitive properties without boxing the value.
+ *
+ * <p>A {@link Function}/{@link BiConsumer} accessor pair passes every value as an {@link Object}, so a
+ * {@code long} property allocates a {@link Long} on each copy. When the getter and the setter use the
+ * same primitive type, the property is copied through a getter and setter interface of that type instead.
+ */
+final class PrimitiveAccessors {
+
+    interface BooleanGetter {
+        boolean get(Object bean);
+    }
+
+    interface BooleanSetter {
+        void set(Object bean, boolean value);
+    }
+
+    interface ByteGetter {
+        byte get(Object bean);
+    }
+
+    interface ByteSetter {
+        void set(Object bean, byte value);
+    }
+
+    interface ShortGetter {
+        short get(Object bean);
+    }
+
+    interface ShortSetter {
+        void set(Object bean, short value);
+    }
+
+    interface CharGetter {
+        char get(Object bean);
+    }
+
+    interface CharSetter {
+        void set(Object bean, char value);
+    }
+
+    interface IntGetter {
+        int get(Object bean);
+    }
+
+    interface IntSetter {
+        void set(Object bean, int value);
+    }
+
+    interface LongGetter {
+        long get(Object bean);
+    }
+
+    interface LongSetter {
+        void set(Object bean, long value);
+    }
+
+    interface FloatGetter {
+        float get(Object bean);
+    }
+
+    interface FloatSetter {
+        void set(Object bean, float value);
+    }
+
+    interface DoubleGetter {
+        double get(Object bean);
+    }
+
+    interface DoubleSetter {
+        void set(Object bean, double value);
+    }
+
+    private PrimitiveAccessors() {
+    }
+
+    /**
+     * @return a copy of the property from the source to the target that keeps the value primitive, or
+     * {@code null} when the types are not the same primitive or the methods cannot be called directly.
+     */
+    static BiConsumer<Object, Object> copier(Method getter, Method setter){
+        Class<?> type = getter.getReturnType();
+        if(!type.isPrimitive() || !type.equals(setter.getParameterTypes()[0])) return null;
+        if(!PropertyAccessors.isVisible(getter) || !PropertyAccessors.isVisible(setter)) return null;
+        try {
+            return spinCopier(type, getter, setter);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    private static BiConsumer<Object, Object> spinCopier(Class<?> type, Method getter, Method setter) throws Throwable {
+        if(boolean.class.equals(type)) {
+            BooleanGetter read = spinGetter(BooleanGetter.class, getter);
+            BooleanSetter write = spinSetter(BooleanSetter.class, setter);
+            return (target, source) -> write.set(target, read.get(source));
+        }
+        if(byte.class.equals(type)) {
+            ByteGetter read = spinGetter(ByteGetter.class, getter);
+            ByteSetter write = spinSetter(ByteSetter.class, setter);
+            return (target, source) -> write.set(target, read.get(source));
+        }
+        if(short.class.equals(type)) {
+            ShortGetter read = spinGetter(ShortGetter.class, getter);
+            ShortSetter write = spinSetter(ShortSetter.class, setter);
+            return (target, source) -> write.set(target, read.get(source));
+        }
+        if(char.class.equals(type)) {
+            CharGetter read = spinGetter(CharGetter.class, getter);
+            CharSetter write = spinSetter(CharSetter.class, setter);
+            return (target, source) -> write.set(target, read.get(source));
+        }
+        if(int.class.equals(type)) {
+            IntGetter read = spinGetter(IntGetter.class, getter);
+            IntSetter write = spinSetter(IntSetter.class, setter);
+            return (target, source) -> write.set(target, read.get(source));
+        }
+        if(long.class.equals(type)) {
+            LongGetter read = spinGetter(LongGetter.class, getter);
+            LongSetter write = spinSetter(LongSetter.class, setter);
+            return (target, source) -> write.set(target, read.get(source));
+        }
+        if(float.class.equals(type)) {
+            FloatGetter read = spinGetter(FloatGetter.class, getter);
+            FloatSetter write = spinSetter(FloatSetter.class, setter);
+            return (target, source) -> write.set(target, read.get(source));
+        }
+        if(double.class.equals(type)) {
+            DoubleGetter read = spinGetter(DoubleGetter.class, getter);
+            DoubleSetter write = spinSetter(DoubleSetter.class, setter);
+            return (target, source) -> write.set(target, read.get(source));
+        }
+        return null;
+    }
+
+    private static <A> A spinGetter(Class<A> getterType, Method getter) throws Throwable {
+        Class<?> type = getter.getReturnType();
+        return PropertyAccessors.spin(getterType, "get", MethodType.methodType(type, Object.class), getter,
+                MethodType.methodType(type, getter.getDeclaringClass()));
+    }
+
+    private static <A> A spinSetter(Class<A> setterType, Method setter) throws Throwable {
+        Class<?> type = setter.getParameterTypes()[0];
+        return PropertyAccessors.spin(setterType, "set", MethodType.methodType(void.class, Object.class, type), setter,
+                MethodType.methodType(void.class, setter.getDeclaringClass(), type));
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Turns resolved getters, setters and constructors into {@link Function}, {@link BiConsumer} and
+ * {@link Supplier} accessors.
+ *
+ * <p>The accessor is spun by {@link LambdaMetafactory} when the method is public and visible from this
+ * library, which makes it a direct call the JIT can inline. Otherwise, and for fields, which
+ * {@link LambdaMetafactory} cannot target, it is a plain {@link Method#invoke} or {@link Field#get}: a
+ * {@link MethodHandle} kept in an accessor instance is not a constant to the JIT, so calling it is not
+ * any faster.
+ */
+final class PropertyAccessors {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private PropertyAccessors() {
+    }
+
+    static Function<Object, Object> getter(Member getter){
+        return getter instanceof Field ? new ReflectiveGetter(getter) : methodGetter((Method) getter);
+    }
+
+    static BiConsumer<Object, Object> setter(Member setter){
+        return setter instanceof Field ? new ReflectiveSetter(setter) : methodSetter((Method) setter);
+    }
+
+    static Function<Object, Object> reflectiveGetter(Member getter){
+        return new ReflectiveGetter(getter);
+    }
+
+    static BiConsumer<Object, Object> reflectiveSetter(Member setter){
+        return new ReflectiveSetter(setter);
+    }
+
+    /**
+     * @return a copy from the source to the target that calls the setter with the result of the getter
+     * through a single handle, or {@code null} when no handle can be created or the types do not convert.
+     */
+    static BiConsumer<Object, Object> copier(Member getter, Member setter){
+        MethodHandle read = getter instanceof Field ? unreflectGetter((Field) getter) : unreflect((Method) getter);
+        MethodHandle write = setter instanceof Field ? unreflectSetter((Field) setter) : unreflect((Method) setter);
+        if(read == null || write == null) return null;
+        try {
+            read = read.asType(MethodType.methodType(write.type().parameterType(1), Object.class));
+            return new HandleCopier(MethodHandles.filterArguments(write, 1, read).asType(SETTER_TYPE));
+        } catch (WrongMethodTypeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return an accessor that moves a primitive property between beans and an array column of its type
+     * through combined handles, which do not box the value, or {@code null} when a handle cannot be created.
+     */
+    static ColumnPlan.Accessor column(Member getter, Member setter){
+        MethodHandle read = getter instanceof Field ? unreflectGetter((Field) getter) : unreflect((Method) getter);
+        MethodHandle write = setter instanceof Field ? unreflectSetter((Field) setter)
+                : setter instanceof Method ? unreflect((Method) setter) : null;
+        if(read == null || write == null) return null;
+        Class<?> type = read.type().returnType();
+        if(!type.isPrimitive() || !type.equals(write.type().parameterType(1))) return null;
+        Class<?> arrayType = Array.newInstance(type, 0).getClass();
+        MethodType columnType = MethodType.methodType(void.class, Object.class, int.class, Object.class);
+        // (column, index, bean) -> column[index] = getter(bean)
+        MethodHandle scatter = MethodHandles.collectArguments(MethodHandles.arrayElementSetter(arrayType), 2, read);
+        // (column, index, bean) -> setter(bean, column[index])
+        MethodHandle gather = MethodHandles.permuteArguments(
+                MethodHandles.collectArguments(write, 1, MethodHandles.arrayElementGetter(arrayType)),
+                MethodType.methodType(void.class, arrayType, int.class, write.type().parameterType(0)), 2, 0, 1);
+        return new HandleColumn(scatter.asType(columnType), gather.asType(columnType));
+    }
+
+    /**
+     * @return whether handles to the field can be created, which needs its package to be open to this
+     * library on Java 9 and later.
+     */
+    static boolean canAccess(Field field){
+        return unreflectGetter(field) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> methodGetter(Method getter){
+        MethodHandle handle = isVisible(getter) ? unreflect(getter) : null;
+        if(handle != null) {
+            try {
+                return spin(Function.class, "apply", GETTER_TYPE, handle,
+                        MethodType.methodType(box(getter.getReturnType()), getter.getDeclaringClass()));
+            } catch (Throwable ignored) {
+                // Not a direct handle this class may link against, call the method reflectively.
+            }
+        }
+        return new ReflectiveGetter(getter);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> methodSetter(Method setter){
+        MethodHandle handle = isVisible(setter) ? unreflect(setter) : null;
+        if(handle != null) {
+            try {
+                return spin(BiConsumer.class, "accept", SETTER_TYPE, handle,
+                        MethodType.methodType(void.class, setter.getDeclaringClass(), box(setter.getParameterTypes()[0])));
+            } catch (Throwable ignored) {
+                // Not a direct handle this class may link against, call the method reflectively.
+            }
+        }
+        return new ReflectiveSetter(setter);
+    }
+
+    /**
+     * @return a supplier calling the no-argument constructor of the type, or one that throws a
+     * {@link MapperException} if the type cannot be instantiated that way.
+     */
+    @SuppressWarnings("unchecked")
+    static Supplier<Object> constructor(Class<?> type){
+        Constructor<?> constructor;
+        try {
+            constructor = makeAccessible(type.getDeclaredConstructor());
+        } catch (NoSuchMethodException e) {
+            return new MissingConstructor(type);
+        }
+        if(type.isInterface() || Modifier.isAbstract(type.getModifiers())) return new MissingConstructor(type);
+
+        MethodHandle handle;
+        try {
+            handle = LOOKUP.unreflectConstructor(constructor);
+        } catch (IllegalAccessException e) {
+            return new MissingConstructor(type);
+        }
+        if(isVisible(constructor)) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(
+                        LOOKUP,
+                        "get",
+                        MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class),
+                        handle,
+                        MethodType.methodType(type));
+                return (Supplier<Object>) site.getTarget().invoke();
+            } catch (Throwable ignored) {
+                // Not a direct handle this class may link against, use the handle itself.
+            }
+        }
+        return new HandleConstructor(handle.asType(MethodType.methodType(Object.class)));
+    }
+
+    /**
+     * Spins an implementation of a functional interface that calls the method directly. The caller has
+     * to check that the method {@link #isVisible(Executable) is visible}.
+     *
+     * @param erasedType       the signature of the interface method
+     * @param instantiatedType the signature of the interface method with the types of the handle
+     */
+    static <A> A spin(Class<A> interfaceType, String methodName, MethodType erasedType, Method method,
+                      MethodType instantiatedType) throws Throwable {
+        return spin(interfaceType, methodName, erasedType, LOOKUP.unreflect(method), instantiatedType);
+    }
+
+    private static <A> A spin(Class<A> interfaceType, String methodName, MethodType erasedType,
+                              MethodHandle handle, MethodType instantiatedType) throws Throwable {
+        CallSite site = LambdaMetafactory.metafactory(
+                LOOKUP,
+                methodName,
+                MethodType.methodType(interfaceType),
+                erasedType,
+                handle,
+                instantiatedType);
+        return interfaceType.cast(site.getTarget().invoke());
+    }
+
+    /**
+     * Skip the language access check on every invoke, the members are resolved by name and type anyway.
+     */
+    static <T extends AccessibleObject> T makeAccessible(T member){
+        try {
+            member.setAccessible(true);
+        } catch (RuntimeException ignored) {
+            // Keep the regular access check.
+        }
+        return member;
+    }
+
+    private static MethodHandle unreflectGetter(Field field){
+        try {
+            return LOOKUP.unreflectGetter(field);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle unreflectSetter(Field field){
+        try {
+            return LOOKUP.unreflectSetter(field);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the handle of the method, taking an ignored bean argument first if it is static.
+     */
+    private static MethodHandle unreflect(Method method){
+        try {
+            MethodHandle handle = LOOKUP.unreflect(method);
+            return Modifier.isStatic(method.getModifiers()) ? MethodHandles.dropArguments(handle, 0, Object.class) : handle;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A spun lambda class resolves the classes it uses through this library's class loader, so every
+     * class in the signature must be the same class when loaded from here.
+     */
+    static boolean isVisible(Executable executable){
+        int modifiers = executable.getModifiers();
+        if(!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers)
+                || !Modifier.isPublic(executable.getDeclaringClass().getModifiers())) return false;
+        if(!isVisible(executable.getDeclaringClass())) return false;
+        if(executable instanceof Method && !isVisible(((Method) executable).getReturnType())) return false;
+        for (Class<?> parameterType : executable.getParameterTypes()) if(!isVisible(parameterType)) return false;
+        return true;
+    }
+
+    private static boolean isVisible(Class<?> type){
+        while (type.isArray()) type = type.getComponentType();
+        if(type.isPrimitive()) return true;
+        try {
+            return type == Class.forName(type.getName(), false, PropertyAccessors.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    static Class<?> box(Class<?> type){
+        return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+    }
+
+    static MapperException rethrow(Throwable e){
+        if(e instanceof RuntimeException) throw (RuntimeException) e;
+        if(e instanceof Error) throw (Error) e;
+        return new MapperException((Exception) e);
+    }
+
+    private static final class HandleConstructor implements Supplier<Object> {
+        private final MethodHandle handle;
+
+        private HandleConstructor(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public Object get() {
+            try {
+                return handle.invokeExact();
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    private static final class HandleCopier implements BiConsumer<Object, Object> {
+        private final MethodHandle handle;
+
+        private HandleCopier(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public void accept(Object target, Object source) {
+            try {
+                handle.invokeExact(target, source);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    private static final class HandleColumn implements ColumnPlan.Accessor {
+        private final MethodHandle scatter;
+        private final MethodHandle gather;
+
+        private HandleColumn(MethodHandle scatter, MethodHandle gather) {
+            this.scatter = scatter;
+            this.gather = gather;
+        }
+
+        @Override
+        public void scatter(Object column, int index, Object bean) {
+            try {
+                scatter.invokeExact(column, index, bean);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        public void gather(Object column, int index, Object bean) {
+            try {
+                gather.invokeExact(column, index, bean);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    private static final class MissingConstructor implements Supplier<Object> {
+        private final Class<?> type;
+
+        private MissingConstructor(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public Object get() {
+            throw new MapperException(new InstantiationException(type.getName()));
+        }
+    }
+
+    private static final class ReflectiveGetter implements Function<Object, Object> {
+        private final Member getter;
+
+        private ReflectiveGetter(Member getter) {
+            this.getter = getter;
+        }
+
+        @Override
+        public Object apply(Object bean) {
+            try {
+                return getter instanceof Field ? ((Field) getter).get(bean) : ((Method) getter).invoke(bean);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new MapperException(e);
+            }
+        }
+    }
+
+    private static final class ReflectiveSetter implements BiConsumer<Object, Object> {
+        private final Member setter;
+
+        private ReflectiveSetter(Member setter) {
+            this.setter = setter;
+        }
+
+        @Override
+        public void accept(Object bean, Object value) {
+            try {
+                if(setter instanceof Field) ((Field) setter).set(bean, value);
+                else ((Method) setter).invoke(bean, value);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new MapperException(e);
+            }
+        }
+    }
+}
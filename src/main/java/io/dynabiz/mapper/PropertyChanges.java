@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The properties a {@link Mapper#patch} set or a {@link Mapper#diff} found changed, as one bit per
+ * mapped property of the plan, in the order the plan copies them.
+ */
+public final class PropertyChanges {
+    private final String[] names;
+    private final long[] bits;
+
+    PropertyChanges(String[] names) {
+        this.names = names;
+        this.bits = new long[(names.length + 63) >>> 6];
+    }
+
+    void add(int index){
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    public boolean isEmpty(){
+        for (long word : bits) if(word != 0) return false;
+        return true;
+    }
+
+    /**
+     * @return the number of changed properties.
+     */
+    public int size(){
+        int size = 0;
+        for (long word : bits) size += Long.bitCount(word);
+        return size;
+    }
+
+    /**
+     * @param name the name of the property in the target class
+     */
+    public boolean contains(String name){
+        for (int i = 0; i < names.length; i++) {
+            if(names[i].equals(name) && (bits[i >>> 6] & 1L << i) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the names of the changed properties in the target class.
+     */
+    public List<String> getNames(){
+        if(isEmpty()) return Collections.emptyList();
+        List<String> changed = new ArrayList<>(size());
+        for (int i = 0; i < names.length; i++) if((bits[i >>> 6] & 1L << i) != 0) changed.add(names[i]);
+        return changed;
+    }
+
+    /**
+     * @return the changes as a bit set indexed like {@link #getPropertyNames()}.
+     */
+    public BitSet toBitSet(){
+        return BitSet.valueOf(bits);
+    }
+
+    /**
+     * @return the names of all properties of the plan, the bit of a property is its index in this list.
+     */
+    public List<String> getPropertyNames(){
+        List<String> all = new ArrayList<>(names.length);
+        Collections.addAll(all, names);
+        return Collections.unmodifiableList(all);
+    }
+
+    @Override
+    public String toString() {
+        return "PropertyChanges" + getNames();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import io.dynabiz.util.Assert;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Clears the {@code @Mapped} properties of a class, compiled once per class and {@link MapperEngine}.
+ *
+ * <p>Properties are cleared through their backing field, since a setter may use its argument. A property
+ * without a writable field of its name is cleared through its setter. Primitives are set to their zero
+ * value boxed once at compile time, so engines whose accessors unbox do not allocate. Properties only
+ * passed to a {@link MappedCreator}, e.g. final fields, keep their values, any other property that cannot
+ * be written fails the compile. Maps are cleared.
+ */
+final class ResetPlan {
+    private final BiConsumer<Object, Object>[] writers;
+    private final Object[] values;
+    private final boolean map;
+
+    private ResetPlan(BiConsumer<Object, Object>[] writers, Object[] values, boolean map) {
+        this.writers = writers;
+        this.values = values;
+        this.map = map;
+    }
+
+    @SuppressWarnings("unchecked")
+    static ResetPlan compile(MapperEngine engine, Class<?> type){
+        List<BiConsumer<Object, Object>> writers = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        boolean map = MappingPlan.isMap(type);
+        TargetCreator creator = map ? null : MappingPlan.creator(type);
+        for(Class<?> curType = type;
+            !map && curType != null && !Object.class.equals(curType);
+            curType = curType.getSuperclass()){
+            for (MappedDeclaration declaration : MappingPlan.declarations(curType)) {
+                Field field = declaration.getField() != null ? declaration.getField() : backingField(curType, declaration);
+                BiConsumer<Object, Object> writer = field != null ? engine.setter(field)
+                        : declaration.getWriter() != null ? declaration.getWriter()
+                        : declaration.getSetter() != null ? engine.setter(declaration.getSetter()) : null;
+                if(writer == null) {
+                    Assert.beTrue(creator != null && creator.indexOf(declaration.getName()) >= 0,
+                            new MapperException(String.format("Cannot reset property %s of %s, it has no writable field or setter",
+                                    declaration.getName(), type.getName())));
+                    continue;
+                }
+                writers.add(writer);
+                values.add(declaration.getType().isPrimitive()
+                        ? Array.get(Array.newInstance(declaration.getType(), 1), 0) : null);
+            }
+        }
+        return new ResetPlan(writers.toArray((BiConsumer<Object, Object>[]) new BiConsumer<?, ?>[0]), values.toArray(), map);
+    }
+
+    /**
+     * @return the accessible field the property of a setter is kept in, or {@code null} if there is none.
+     */
+    private static Field backingField(Class<?> type, MappedDeclaration declaration){
+        Field field;
+        try {
+            field = type.getDeclaredField(declaration.getName());
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+        int modifiers = field.getModifiers();
+        if(Modifier.isFinal(modifiers) || Modifier.isStatic(modifiers) || !field.getType().equals(declaration.getType()))
+            return null;
+        return PropertyAccessors.canAccess(PropertyAccessors.makeAccessible(field)) ? field : null;
+    }
+
+    void reset(Object target){
+        if(map) {
+            ((Map<?, ?>) target).clear();
+            return;
+        }
+        try {
+            for (int i = 0; i < writers.length; i++) writers[i].accept(target, values[i]);
+        } catch (MapperException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MapperException(e);
+        }
+    }
+}
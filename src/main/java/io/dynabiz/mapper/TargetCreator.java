@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates a target through its {@link MappedCreator}: a constructor or static factory taking the values of
+ * the creator properties, or a builder the values are passed to one by one.
+ */
+final class TargetCreator {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final String[] names;
+    /**
+     * The value passed for a {@code null} primitive parameter.
+     */
+    private final Object[] defaults;
+    /**
+     * Takes the values as an array and returns the target, or returns a new builder.
+     */
+    private final MethodHandle create;
+    /**
+     * Pass a value to the builder and return the next builder or {@code null}, or {@code null} when there is no builder.
+     */
+    private final MethodHandle[] withers;
+    private final MethodHandle build;
+
+    private TargetCreator(String[] names, Class<?>[] parameterTypes, MethodHandle create,
+                          MethodHandle[] withers, MethodHandle build) {
+        this.names = names;
+        this.create = create;
+        this.withers = withers;
+        this.build = build;
+        this.defaults = new Object[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if(parameterTypes[i].isPrimitive()) defaults[i] = Array.get(Array.newInstance(parameterTypes[i], 1), 0);
+        }
+    }
+
+    /**
+     * @param declarations the mapped properties of the class and of its superclasses
+     * @return the creator of the class, or {@code null} when it declares no {@code @MappedCreator}
+     */
+    static TargetCreator find(Class<?> type, List<MappedDeclaration> declarations){
+        Executable creator = null;
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if(constructor.isAnnotationPresent(MappedCreator.class)) creator = only(creator, constructor, type);
+        }
+        for (Method method : type.getDeclaredMethods()) {
+            if(!method.isAnnotationPresent(MappedCreator.class)) continue;
+            if(!Modifier.isStatic(method.getModifiers()))
+                throw new MapperException(String.format("Mapped creator %s must be a constructor or a static method", method));
+            creator = only(creator, method, type);
+        }
+        if(creator == null) return null;
+
+        String[] names = creator.getAnnotation(MappedCreator.class).value();
+        try {
+            if(creator instanceof Method && !type.isAssignableFrom(((Method) creator).getReturnType())) {
+                if(creator.getParameterCount() != 0)
+                    throw new MapperException(String.format("Mapped creator %s must return %s, or take no parameter and return a builder",
+                            creator, type.getName()));
+                return builder((Method) creator, type, names, declarations);
+            }
+            if(names.length == 0) names = parameterNames(creator);
+            if(names.length != creator.getParameterCount())
+                throw new MapperException(String.format("Mapped creator %s takes %d parameters but names %d properties",
+                        creator, creator.getParameterCount(), names.length));
+            Class<?>[] parameterTypes = creator.getParameterTypes();
+            for (int i = 0; i < names.length; i++) {
+                requireAssignable(creator, parameterTypes[i], declaration(names[i], declarations, type));
+            }
+            MethodHandle handle = creator instanceof Constructor
+                    ? LOOKUP.unreflectConstructor(PropertyAccessors.makeAccessible((Constructor<?>) creator))
+                    : LOOKUP.unreflect(PropertyAccessors.makeAccessible((Method) creator));
+            handle = handle.asType(handle.type().generic()).asSpreader(Object[].class, names.length);
+            return new TargetCreator(names, parameterTypes, handle, null, null);
+        } catch (IllegalAccessException e) {
+            throw new MapperException(e);
+        }
+    }
+
+    private static TargetCreator builder(Method factory, Class<?> type, String[] names,
+                                         List<MappedDeclaration> declarations) throws IllegalAccessException {
+        Class<?> builderType = factory.getReturnType();
+        Method build;
+        try {
+            build = builderType.getMethod("build");
+        } catch (NoSuchMethodException e) {
+            throw new MapperException(String.format("Builder %s has no build method", builderType.getName()));
+        }
+        if(!type.isAssignableFrom(build.getReturnType()))
+            throw new MapperException(String.format("Method %s does not build %s", build, type.getName()));
+        if(names.length == 0) {
+            List<String> unwritten = new ArrayList<>();
+            for (MappedDeclaration declaration : declarations) if(!declaration.hasWriter()) unwritten.add(declaration.getName());
+            names = unwritten.toArray(new String[0]);
+        }
+
+        Class<?>[] parameterTypes = new Class<?>[names.length];
+        MethodHandle[] withers = new MethodHandle[names.length];
+        for (int i = 0; i < names.length; i++) {
+            MappedDeclaration declaration = declaration(names[i], declarations, type);
+            Method wither = findWither(builderType, declaration);
+            if(wither == null)
+                throw new MapperException(String.format("Builder %s has no method for property %s type %s",
+                        builderType.getName(), declaration.getName(), declaration.getType()));
+            parameterTypes[i] = wither.getParameterTypes()[0];
+            withers[i] = LOOKUP.unreflect(PropertyAccessors.makeAccessible(wither))
+                    .asType(MethodType.methodType(Object.class, Object.class, Object.class));
+        }
+        return new TargetCreator(names, parameterTypes,
+                LOOKUP.unreflect(PropertyAccessors.makeAccessible(factory)).asType(MethodType.methodType(Object.class)),
+                withers,
+                LOOKUP.unreflect(PropertyAccessors.makeAccessible(build)).asType(MethodType.methodType(Object.class, Object.class)));
+    }
+
+    private static Executable only(Executable found, Executable creator, Class<?> type){
+        if(found != null)
+            throw new MapperException(String.format("%s declares more than one @MappedCreator", type.getName()));
+        return creator;
+    }
+
+    private static String[] parameterNames(Executable creator){
+        Parameter[] parameters = creator.getParameters();
+        String[] names = new String[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            if(!parameters[i].isNamePresent())
+                throw new MapperException(String.format("Parameter names of %s are not compiled, list the properties in @MappedCreator", creator));
+            names[i] = parameters[i].getName();
+        }
+        return names;
+    }
+
+    private static MappedDeclaration declaration(String name, List<MappedDeclaration> declarations, Class<?> type){
+        for (MappedDeclaration declaration : declarations) if(declaration.getName().equals(name)) return declaration;
+        throw new MapperException(String.format("Creator property %s is not a mapped property of %s", name, type.getName()));
+    }
+
+    private static void requireAssignable(Executable creator, Class<?> parameterType, MappedDeclaration declaration){
+        if(!PropertyAccessors.box(parameterType).isAssignableFrom(PropertyAccessors.box(declaration.getType())))
+            throw new MapperException(String.format("Mapped creator %s cannot take property %s type %s",
+                    creator, declaration.getName(), declaration.getType()));
+    }
+
+    /**
+     * @return the public builder method named like the property, or {@code set} or {@code with} followed by
+     * its name, that takes the property type.
+     */
+    private static Method findWither(Class<?> builderType, MappedDeclaration declaration){
+        String capitalized = MappedDeclaration.capitalize(declaration.getName());
+        Class<?> type = PropertyAccessors.box(declaration.getType());
+        for (String name : new String[]{declaration.getName(), "set" + capitalized, "with" + capitalized}) {
+            for (Method method : builderType.getMethods()) {
+                if(method.getName().equals(name) && method.getParameterCount() == 1 && !Modifier.isStatic(method.getModifiers())
+                        && PropertyAccessors.box(method.getParameterTypes()[0]).isAssignableFrom(type))
+                    return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the position of the property among the creator values, or {@code -1} when it is set afterwards.
+     */
+    int indexOf(String name){
+        for (int i = 0; i < names.length; i++) if(names[i].equals(name)) return i;
+        return -1;
+    }
+
+    int size(){
+        return names.length;
+    }
+
+    /**
+     * Creates the target. A {@code null} value is passed as zero to a primitive parameter, and not passed
+     * to a builder at all.
+     */
+    Object create(Object[] values){
+        try {
+            if(withers == null) {
+                for (int i = 0; i < values.length; i++) if(values[i] == null) values[i] = defaults[i];
+                return (Object) create.invokeExact(values);
+            }
+            Object builder = (Object) create.invokeExact();
+            for (int i = 0; i < values.length; i++) {
+                if(values[i] == null) continue;
+                Object next = (Object) withers[i].invokeExact(builder, values[i]);
+                if(next != null) builder = next;
+            }
+            return (Object) build.invokeExact(builder);
+        } catch (Throwable e) {
+            throw PropertyAccessors.rethrow(e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import io.dynabiz.util.Assert;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * A small pool of targets of one class that are mapped into and released again, so hot loops whose
+ * targets are discarded right after use do not allocate them. Released targets are reset by
+ * {@link Mapper#reset}, and dropped when the pool is full.
+ *
+ * <ul>
+ *     <li>{@link #perThread} keeps the targets of each thread apart, a target must be released by the
+ *     thread that acquired it to be reused.</li>
+ *     <li>{@link #striped} shares its targets between threads through slots claimed by compare-and-set.</li>
+ * </ul>
+ *
+ * <p>With an engine that creates handles, acquiring, mapping primitive and reference properties and
+ * releasing a target allocate nothing once the pool holds it.
+ */
+public abstract class TargetPool<T> {
+    private final Mapper mapper;
+    private final Class<T> type;
+    private final Supplier<Object> constructor;
+
+    TargetPool(Mapper mapper, Class<T> type) {
+        this.mapper = Objects.requireNonNull(mapper, "Mapper could not be null.");
+        this.type = Objects.requireNonNull(type, "Target type could not be null.");
+        this.constructor = PropertyAccessors.constructor(type);
+    }
+
+    public static <T> TargetPool<T> perThread(Mapper mapper, Class<T> type, int capacity){
+        Assert.beTrue(capacity > 0, new IllegalArgumentException("Capacity must be positive."));
+        return new PerThread<>(mapper, type, capacity);
+    }
+
+    public static <T> TargetPool<T> striped(Mapper mapper, Class<T> type, int capacity){
+        Assert.beTrue(capacity > 0, new IllegalArgumentException("Capacity must be positive."));
+        return new Striped<>(mapper, type, capacity);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return a pooled target, or a new one when the pool is empty
+     */
+    public T acquire(){
+        Object target = poll();
+        return type.cast(target != null ? target : constructor.get());
+    }
+
+    /**
+     * @return a pooled or new target the source is mapped to, see {@link Mapper#map}
+     */
+    public <ST> T mapFrom(ST source){
+        T target = acquire();
+        mapper.map(target, source);
+        return target;
+    }
+
+    /**
+     * Resets the target and returns it to the pool. The caller must not use it afterwards.
+     */
+    public void release(T target){
+        Objects.requireNonNull(target, "Target object could not be null.");
+        mapper.reset(target);
+        offer(target);
+    }
+
+    /**
+     * @return a pooled target, or {@code null} when there is none
+     */
+    abstract Object poll();
+
+    abstract void offer(Object target);
+
+    private static final class PerThread<T> extends TargetPool<T> {
+        private final ThreadLocal<Stack> stacks;
+
+        private PerThread(Mapper mapper, Class<T> type, int capacity) {
+            super(mapper, type);
+            this.stacks = ThreadLocal.withInitial(() -> new Stack(capacity));
+        }
+
+        @Override
+        Object poll() {
+            Stack stack = stacks.get();
+            if(stack.size == 0) return null;
+            Object target = stack.targets[--stack.size];
+            stack.targets[stack.size] = null;
+            return target;
+        }
+
+        @Override
+        void offer(Object target) {
+            Stack stack = stacks.get();
+            if(stack.size < stack.targets.length) stack.targets[stack.size++] = target;
+        }
+    }
+
+    private static final class Stack {
+        private final Object[] targets;
+        private int size;
+
+        private Stack(int capacity) {
+            this.targets = new Object[capacity];
+        }
+    }
+
+    private static final class Striped<T> extends TargetPool<T> {
+        private final AtomicReferenceArray<Object> slots;
+
+        private Striped(Mapper mapper, Class<T> type, int capacity) {
+            super(mapper, type);
+            this.slots = new AtomicReferenceArray<>(capacity);
+        }
+
+        /**
+         * Threads start probing at different slots, so they rarely contend for the same target.
+         */
+        private int start(){
+            long id = Thread.currentThread().getId();
+            return (int) ((id * 0x9E3779B97F4A7C15L >>> 33) % slots.length());
+        }
+
+        @Override
+        Object poll() {
+            int length = slots.length();
+            for (int i = 0, slot = start(); i < length; i++, slot = slot + 1 == length ? 0 : slot + 1) {
+                Object target = slots.get(slot);
+                if(target != null && slots.compareAndSet(slot, target, null)) return target;
+            }
+            return null;
+        }
+
+        @Override
+        void offer(Object target) {
+            int length = slots.length();
+            for (int i = 0, slot = start(); i < length; i++, slot = slot + 1 == length ? 0 : slot + 1) {
+                if(slots.get(slot) == null && slots.compareAndSet(slot, null, target)) return;
+            }
+        }
+    }
+}
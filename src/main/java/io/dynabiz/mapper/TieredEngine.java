@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.dynabiz.mapper;
+
+
+import java.lang.reflect.Member;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Compiles every plan with {@link MapperEngine#REFLECTION}, which spins no classes, and lets a plan that
+ * was used {@code threshold} times be replaced by one compiled with the next tier, see {@link MappingPlan#map}.
+ */
+final class TieredEngine extends MapperEngine {
+    private final MapperEngine compiled;
+    private final int threshold;
+
+    TieredEngine(MapperEngine compiled, int threshold) {
+        super("tiered(" + compiled + ")");
+        this.compiled = compiled;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return the engine hot class pairs are compiled with.
+     */
+    MapperEngine getCompiled() {
+        return compiled;
+    }
+
+    int getThreshold() {
+        return threshold;
+    }
+
+    @Override
+    Function<Object, Object> getter(Member getter) {
+        return REFLECTION.getter(getter);
+    }
+
+    @Override
+    BiConsumer<Object, Object> setter(Member setter) {
+        return REFLECTION.setter(setter);
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package test;
+
+import io.dynabiz.mapper.Mapped;
+import io.dynabiz.mapper.Mapper;
+import io.dynabiz.mapper.MapperEngine;
+import io.dynabiz.mapper.TargetPool;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+public class MapperAllocationTest {
+
+    @Test
+    public void testPrimitiveMappingDoesNotAllocate() {
+        System.out.println("+=========================================================+");
+        System.out.println("||             TEST MAPPER PRIMITIVE ALLOCATION          ||");
+        System.out.println("+=========================================================+");
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        for (MapperEngine engine : new MapperEngine[]{MapperEngine.METHOD_HANDLE, MapperEngine.GENERATED}) {
+            Mapper mapper = Mapper.builder().engine(engine).build();
+            PrimitiveEntity entity = new PrimitiveEntity();
+            PrimitiveTransfer transfer = new PrimitiveTransfer();
+            for (int i = 0; i < 50000; i++) {
+                entity.setId(Long.MAX_VALUE - i);
+                mapper.map(transfer, entity);
+            }
+
+            int iterations = 100000;
+            long before = allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int i = 0; i < iterations; i++) {
+                entity.setId(Long.MAX_VALUE - i);
+                mapper.map(transfer, entity);
+            }
+            long allocated = allocations.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+            System.out.println(engine + ": " + allocated + " bytes for " + iterations + " maps");
+            assert transfer.getId() == entity.getId();
+            assert transfer.getPrice() == entity.getPrice();
+            assert transfer.isActive();
+            assert transfer.getTotal() == entity.getQuantity();
+            assert allocated < iterations;
+        }
+    }
+
+    @Test
+    public void testPooledMappingDoesNotAllocate() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        Mapper mapper = Mapper.builder().engine(MapperEngine.METHOD_HANDLE).build();
+        for (TargetPool<PrimitiveTransfer> pool : Arrays.asList(TargetPool.perThread(mapper, PrimitiveTransfer.class, 4),
+                TargetPool.striped(mapper, PrimitiveTransfer.class, 4))) {
+            PrimitiveEntity entity = new PrimitiveEntity();
+            for (int i = 0; i < 50000; i++) {
+                entity.setId(i);
+                pool.release(pool.mapFrom(entity));
+            }
+
+            int iterations = 100000;
+            long before = allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int i = 0; i < iterations; i++) {
+                entity.setId(i);
+                PrimitiveTransfer transfer = pool.mapFrom(entity);
+                if(transfer.getId() != i) throw new AssertionError();
+                pool.release(transfer);
+            }
+            long allocated = allocations.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+            System.out.println("pooled: " + allocated + " bytes for " + iterations + " maps");
+            PrimitiveTransfer transfer = pool.acquire();
+            assert transfer.getId() == 0 && !transfer.isActive() && transfer.getTotal() == 0;
+            assert allocated < iterations;
+        }
+    }
+
+    public static class PrimitiveEntity {
+        private long id;
+        private int quantity = 100000;
+        private double price = 1024.5;
+        private float rate = 0.75f;
+        private short level = 1000;
+        private byte flags = 7;
+        private char grade = 'A';
+        private boolean active = true;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public float getRate() {
+            return rate;
+        }
+
+        public short getLevel() {
+            return level;
+        }
+
+        public byte getFlags() {
+            return flags;
+        }
+
+        public char getGrade() {
+            return grade;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    public static class PrimitiveTransfer {
+        @Mapped
+        private long id;
+        @Mapped
+        private int quantity;
+        @Mapped
+        private double price;
+        @Mapped
+        private float rate;
+        @Mapped
+        private short level;
+        @Mapped
+        private byte flags;
+        @Mapped
+        private char grade;
+        @Mapped
+        private boolean active;
+        @Mapped(name = "quantity")
+        private long total;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        public float getRate() {
+            return rate;
+        }
+
+        public void setRate(float rate) {
+            this.rate = rate;
+        }
+
+        public short getLevel() {
+            return level;
+        }
+
+        public void setLevel(short level) {
+            this.level = level;
+        }
+
+        public byte getFlags() {
+            return flags;
+        }
+
+        public void setFlags(byte flags) {
+            this.flags = flags;
+        }
+
+        public char getGrade() {
+            return grade;
+        }
+
+        public void setGrade(char grade) {
+            this.grade = grade;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public void setTotal(long total) {
+            this.total = total;
+        }
+    }
+}
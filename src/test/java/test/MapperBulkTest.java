@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package test;
+
+import io.dynabiz.mapper.ColumnBatch;
+import io.dynabiz.mapper.Mapper;
+import io.dynabiz.mapper.MapperEngine;
+import io.dynabiz.mapper.ObjectMapper;
+import org.junit.Test;
+import test.MapperTest.OrderEntity;
+import test.MapperTest.OrderTransfer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+public class MapperBulkTest {
+
+    static List<OrderEntity> createEntities(int count){
+        List<OrderEntity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            OrderEntity entity = new OrderEntity();
+            entity.setOrderID(i);
+            entity.setPhone(String.valueOf(i));
+            entity.setTotalDiscount(BigDecimal.ZERO);
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    @Test
+    public void testMapAll() {
+        System.out.println("+=========================================================+");
+        System.out.println("||                  TEST MAPPER BULK MAPPING             ||");
+        System.out.println("+=========================================================+");
+
+        List<OrderEntity> entities = createEntities(1000);
+        entities.add(null);
+
+        List<OrderTransfer> transfers = ObjectMapper.mapAll(OrderTransfer.class, entities,
+                (source, target) -> target.setCanReturns(source.getOrderID() % 2 == 0));
+        assert transfers.size() == entities.size();
+        for (int i = 0; i < 1000; i++) {
+            assert transfers.get(i).getOrderID() == i;
+            assert transfers.get(i).getUserPhone().equals(String.valueOf(i));
+            assert transfers.get(i).isCanReturns() == (i % 2 == 0);
+        }
+        assert transfers.get(1000) == null;
+        System.out.println("ObjectMapper.mapAll : OK");
+
+        List<Object> targets = new ArrayList<>();
+        targets.add("existing");
+        ObjectMapper.mapAll(targets, OrderTransfer.class, entities.subList(0, 10));
+        assert targets.size() == 11;
+        assert ((OrderTransfer) targets.get(10)).getOrderID() == 9;
+
+        List<OrderTransfer> fromArray = ObjectMapper.mapAll(OrderTransfer.class,
+                entities.subList(0, 10).toArray(new OrderEntity[0]));
+        assert fromArray.size() == 10;
+        assert fromArray.get(3).getOrderID() == 3;
+        System.out.println("ObjectMapper.mapAll into list : OK");
+    }
+
+    @Test
+    public void testMapAllParallel() {
+        List<OrderEntity> entities = createEntities(50000);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<OrderTransfer> transfers = ObjectMapper.mapAllParallel(OrderTransfer.class, entities,
+                    (source, target) -> target.setCanReturns(true), pool, 1000);
+            assert transfers.size() == entities.size();
+            for (int i = 0; i < transfers.size(); i++) {
+                assert transfers.get(i).getOrderID() == i;
+                assert transfers.get(i).isCanReturns();
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        List<OrderTransfer> small = ObjectMapper.mapAllParallel(OrderTransfer.class, entities.subList(0, 10));
+        assert small.size() == 10;
+        assert small.get(9).getOrderID() == 9;
+        System.out.println("ObjectMapper.mapAllParallel : OK");
+    }
+
+    @Test
+    public void testBatchKeepsPlanCached() {
+        Mapper mapper = Mapper.builder().cacheSize(3).build();
+        mapper.mapFrom(OrderTransfer.class, new HashMap<String, Object>());
+        mapper.mapFrom(OrderTransfer.class, new TreeMap<String, Object>());
+        mapper.mapFrom(OrderTransfer.class, new LinkedHashMap<String, Object>());
+
+        Iterator<OrderTransfer> iterator = mapper.mapIterator(OrderTransfer.class, createEntities(3).iterator());
+        assert iterator.next().getOrderID() == 0;
+        mapper.mapFrom(OrderTransfer.class, new Hashtable<String, Object>());
+        mapper.mapFrom(OrderTransfer.class, new ConcurrentHashMap<String, Object>());
+        assert iterator.next().getOrderID() == 1;
+        mapper.mapFrom(OrderTransfer.class, new IdentityHashMap<String, Object>());
+        assert iterator.next().getOrderID() == 2;
+
+        long misses = mapper.getCacheStats().getMissCount();
+        mapper.mapFrom(OrderTransfer.class, createEntities(1).get(0));
+        assert mapper.getCacheStats().getMissCount() == misses;
+    }
+
+    @Test
+    public void testMapLazily() {
+        List<OrderEntity> entities = createEntities(100);
+
+        Iterator<OrderTransfer> iterator = ObjectMapper.mapIterator(OrderTransfer.class, entities.iterator());
+        for (int i = 0; i < 100; i++) {
+            assert iterator.hasNext();
+            assert iterator.next().getOrderID() == i;
+        }
+        assert !iterator.hasNext();
+
+        int count = 0;
+        for (OrderTransfer transfer : ObjectMapper.mapIterable(OrderTransfer.class, entities)) {
+            assert transfer.getOrderID() == count++;
+        }
+        assert count == 100;
+
+        long sum = ObjectMapper.mapStream(OrderTransfer.class, entities.stream())
+                .filter(transfer -> transfer.getOrderID() % 2 == 0)
+                .mapToLong(OrderTransfer::getOrderID)
+                .sum();
+        assert sum == 2450;
+
+        List<OrderTransfer> parallel = ObjectMapper.mapStream(OrderTransfer.class, entities.parallelStream())
+                .collect(Collectors.toList());
+        assert parallel.size() == 100;
+        assert parallel.get(42).getOrderID() == 42;
+        System.out.println("ObjectMapper.mapStream : OK");
+    }
+
+    @Test
+    public void testColumns() {
+        List<OrderTransfer> transfers = ObjectMapper.mapAll(OrderTransfer.class, createEntities(100));
+
+        for (MapperEngine engine : new MapperEngine[]{MapperEngine.REFLECTION, MapperEngine.METHOD_HANDLE}) {
+            Mapper mapper = Mapper.builder().engine(engine).build();
+            ColumnBatch<OrderTransfer> batch = mapper.toColumns(OrderTransfer.class, transfers);
+            assert batch.size() == 100;
+            long[] ids = batch.getColumn("orderID", long[].class);
+            String[] phones = batch.getColumn("userPhone", String[].class);
+            assert ids[42] == 42;
+            assert phones[42].equals("42");
+
+            for (int i = 0; i < ids.length; i++) ids[i] *= 2;
+            List<OrderTransfer> copies = mapper.fromColumns(batch);
+            assert copies.size() == 100;
+            assert copies.get(42).getOrderID() == 84;
+            assert copies.get(42).getUserPhone().equals("42");
+
+            ColumnBatch<OrderTransfer> empty = mapper.newColumns(OrderTransfer.class, 3);
+            assert empty.getColumn("orderID", long[].class).length == 3;
+        }
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package test;
+
+import io.dynabiz.mapper.CollectionMode;
+import io.dynabiz.mapper.Mapped;
+import io.dynabiz.mapper.MappedCreator;
+import io.dynabiz.mapper.Mapper;
+import io.dynabiz.mapper.MapperEngine;
+import io.dynabiz.mapper.MapperException;
+import io.dynabiz.mapper.ObjectMapper;
+import io.dynabiz.mapper.PatchMode;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MapperGraphTest {
+
+    @Test
+    public void testNestedMapping() {
+        System.out.println("+=========================================================+");
+        System.out.println("||                TEST MAPPER OBJECT GRAPH               ||");
+        System.out.println("+=========================================================+");
+
+        NodeEntity shared = new NodeEntity("shared");
+        NodeEntity root = new NodeEntity("root");
+        root.setNext(shared);
+        root.setPrevious(shared);
+
+        for (MapperEngine engine : new MapperEngine[]{MapperEngine.REFLECTION, MapperEngine.GENERATED}) {
+            NodeTransfer transfer = Mapper.builder().engine(engine).build().mapFrom(NodeTransfer.class, root);
+            assert transfer.getName().equals("root");
+            assert transfer.getNext().getName().equals("shared");
+            assert transfer.getNext() == transfer.getPrevious();
+        }
+    }
+
+    @Test
+    public void testCyclicMapping() {
+        NodeEntity first = new NodeEntity("first");
+        NodeEntity second = new NodeEntity("second");
+        first.setNext(second);
+        second.setNext(first);
+        second.setPrevious(second);
+
+        NodeTransfer transfer = ObjectMapper.mapFrom(NodeTransfer.class, first);
+        assert transfer.getNext().getName().equals("second");
+        assert transfer.getNext().getNext() == transfer;
+        assert transfer.getNext().getPrevious() == transfer.getNext();
+    }
+
+    @Test
+    public void testCreatorMapping() {
+        NodeEntity first = new NodeEntity("first");
+        NodeEntity second = new NodeEntity("second");
+        first.setNext(second);
+        first.setPrevious(second);
+        second.setPrevious(first);
+
+        NodeView view = ObjectMapper.mapFrom(NodeView.class, first);
+        assert view.getNext().getName().equals("second");
+        assert view.getPrevious() == view.getNext();
+        assert view.getNext().getPrevious() == view;
+
+        second.setNext(first);
+        try {
+            ObjectMapper.mapFrom(NodeView.class, first);
+            assert false;
+        } catch (MapperException e) {
+            assert e.getMessage().contains("creator");
+        }
+    }
+
+    @Test
+    public void testDeepMapping() {
+        NodeEntity head = new NodeEntity("0");
+        NodeEntity tail = head;
+        for (int i = 1; i < 100000; i++) {
+            NodeEntity node = new NodeEntity(String.valueOf(i));
+            tail.setNext(node);
+            tail = node;
+        }
+
+        NodeTransfer transfer = ObjectMapper.mapFrom(NodeTransfer.class, head);
+        int length = 1;
+        while (transfer.getNext() != null) {
+            transfer = transfer.getNext();
+            length++;
+        }
+        assert length == 100000;
+        assert transfer.getName().equals("99999");
+    }
+
+    @Test
+    public void testContainerMapping() {
+        NodeEntity shared = new NodeEntity("shared");
+        Map<String, NodeEntity> index = new LinkedHashMap<>();
+        index.put("shared", shared);
+        GroupEntity group = new GroupEntity();
+        group.setNodes(Arrays.asList(shared, new NodeEntity("other"), null));
+        group.setIndex(index);
+        group.setTags(new String[]{"a", "b"});
+        group.setLabels(Arrays.asList("x", "y"));
+
+        for (MapperEngine engine : new MapperEngine[]{MapperEngine.REFLECTION, MapperEngine.GENERATED}) {
+            GroupTransfer transfer = Mapper.builder().engine(engine).build().mapFrom(GroupTransfer.class, group);
+            assert transfer.getNodes().size() == 3;
+            assert transfer.getNodes().get(0).getName().equals("shared");
+            assert transfer.getNodes().get(1).getName().equals("other");
+            assert transfer.getNodes().get(2) == null;
+            assert transfer.getIndex().get("shared") == transfer.getNodes().get(0);
+            assert transfer.getTags() != group.getTags();
+            assert Arrays.equals(transfer.getTags(), group.getTags());
+            assert transfer.getLabels() == group.getLabels();
+        }
+    }
+
+    @Test
+    public void testArrayConversion() {
+        ScoreEntity entity = new ScoreEntity();
+        entity.setScores(new Integer[]{1, null, 3});
+        entity.setCodes(new Object[]{"a", 2, null});
+
+        for (MapperEngine engine : new MapperEngine[]{MapperEngine.REFLECTION, MapperEngine.GENERATED}) {
+            Mapper mapper = Mapper.builder().engine(engine).build();
+            ScoreTransfer transfer = mapper.mapFrom(ScoreTransfer.class, entity);
+            assert Arrays.equals(transfer.getScores(), new Long[]{1L, null, 3L});
+            assert Arrays.equals(transfer.getCodes(), new String[]{"a", "2", null});
+            assert mapper.diff(transfer, entity).isEmpty();
+
+            entity.getScores()[1] = 2;
+            assert mapper.diff(transfer, entity).getNames().equals(Arrays.asList("scores"));
+            entity.getScores()[1] = null;
+        }
+
+        ScoreTransfer transfer = Mapper.builder().converter(Integer.class, Long.class, score -> score * 10L).build()
+                .mapFrom(ScoreTransfer.class, entity);
+        assert Arrays.equals(transfer.getScores(), new Long[]{10L, null, 30L});
+    }
+
+    @Test
+    public void testNestedPatch() {
+        NodeEntity first = new NodeEntity("first");
+        NodeEntity second = new NodeEntity("second");
+        first.setNext(second);
+        second.setNext(first);
+        NodeEntity shared = new NodeEntity("shared");
+        Map<String, NodeEntity> index = new LinkedHashMap<>();
+        index.put("shared", shared);
+        GroupEntity group = new GroupEntity();
+        group.setNodes(Arrays.asList(shared, first));
+        group.setIndex(index);
+        group.setTags(new String[]{"a", "b"});
+
+        for (MapperEngine engine : new MapperEngine[]{MapperEngine.REFLECTION, MapperEngine.GENERATED}) {
+            Mapper mapper = Mapper.builder().engine(engine).build();
+            NodeTransfer transfer = mapper.mapFrom(NodeTransfer.class, first);
+            NodeTransfer next = transfer.getNext();
+            assert mapper.diff(transfer, first).isEmpty();
+            assert mapper.patch(transfer, first, PatchMode.SKIP_UNCHANGED).isEmpty();
+            assert transfer.getNext() == next;
+
+            GroupTransfer groupTransfer = mapper.mapFrom(GroupTransfer.class, group);
+            assert mapper.diff(groupTransfer, group).isEmpty();
+
+            first.setNext(new NodeEntity("third"));
+            assert mapper.diff(transfer, first).getNames().equals(Arrays.asList("next"));
+            assert mapper.diff(groupTransfer, group).getNames().equals(Arrays.asList("nodes"));
+            assert mapper.patch(transfer, first, PatchMode.SKIP_UNCHANGED).getNames().equals(Arrays.asList("next"));
+            assert transfer.getNext().getName().equals("third");
+            first.setNext(second);
+        }
+    }
+
+    public static class GroupEntity {
+        private List<NodeEntity> nodes;
+        private Map<String, NodeEntity> index;
+        private String[] tags;
+        private List<String> labels;
+
+        public List<NodeEntity> getNodes() {
+            return nodes;
+        }
+
+        public void setNodes(List<NodeEntity> nodes) {
+            this.nodes = nodes;
+        }
+
+        public Map<String, NodeEntity> getIndex() {
+            return index;
+        }
+
+        public void setIndex(Map<String, NodeEntity> index) {
+            this.index = index;
+        }
+
+        public String[] getTags() {
+            return tags;
+        }
+
+        public void setTags(String[] tags) {
+            this.tags = tags;
+        }
+
+        public List<String> getLabels() {
+            return labels;
+        }
+
+        public void setLabels(List<String> labels) {
+            this.labels = labels;
+        }
+    }
+
+    public static class GroupTransfer {
+        @Mapped
+        private List<NodeTransfer> nodes;
+        @Mapped
+        private Map<String, NodeTransfer> index;
+        @Mapped(collection = CollectionMode.COPY)
+        private String[] tags;
+        @Mapped
+        private List<String> labels;
+
+        public List<NodeTransfer> getNodes() {
+            return nodes;
+        }
+
+        public void setNodes(List<NodeTransfer> nodes) {
+            this.nodes = nodes;
+        }
+
+        public Map<String, NodeTransfer> getIndex() {
+            return index;
+        }
+
+        public void setIndex(Map<String, NodeTransfer> index) {
+            this.index = index;
+        }
+
+        public String[] getTags() {
+            return tags;
+        }
+
+        public void setTags(String[] tags) {
+            this.tags = tags;
+        }
+
+        public List<String> getLabels() {
+            return labels;
+        }
+
+        public void setLabels(List<String> labels) {
+            this.labels = labels;
+        }
+    }
+
+    public static class NodeEntity {
+        private String name;
+        private NodeEntity next;
+        private NodeEntity previous;
+
+        public NodeEntity(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public NodeEntity getNext() {
+            return next;
+        }
+
+        public void setNext(NodeEntity next) {
+            this.next = next;
+        }
+
+        public NodeEntity getPrevious() {
+            return previous;
+        }
+
+        public void setPrevious(NodeEntity previous) {
+            this.previous = previous;
+        }
+    }
+
+    public static class ScoreEntity {
+        private Integer[] scores;
+        private Object[] codes;
+
+        public Integer[] getScores() {
+            return scores;
+        }
+
+        public void setScores(Integer[] scores) {
+            this.scores = scores;
+        }
+
+        public Object[] getCodes() {
+            return codes;
+        }
+
+        public void setCodes(Object[] codes) {
+            this.codes = codes;
+        }
+    }
+
+    public static class ScoreTransfer {
+        @Mapped
+        private Long[] scores;
+        @Mapped
+        private String[] codes;
+
+        public Long[] getScores() {
+            return scores;
+        }
+
+        public void setScores(Long[] scores) {
+            this.scores = scores;
+        }
+
+        public String[] getCodes() {
+            return codes;
+        }
+
+        public void setCodes(String[] codes) {
+            this.codes = codes;
+        }
+    }
+
+    public static class NodeView {
+        @Mapped
+        private final String name;
+        @Mapped
+        private final NodeView next;
+        @Mapped
+        private NodeView previous;
+
+        @MappedCreator({"name", "next"})
+        public NodeView(String name, NodeView next) {
+            this.name = name;
+            this.next = next;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public NodeView getNext() {
+            return next;
+        }
+
+        public NodeView getPrevious() {
+            return previous;
+        }
+
+        public void setPrevious(NodeView previous) {
+            this.previous = previous;
+        }
+    }
+
+    public static class NodeTransfer {
+        @Mapped
+        private String name;
+        @Mapped
+        private NodeTransfer next;
+        @Mapped
+        private NodeTransfer previous;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public NodeTransfer getNext() {
+            return next;
+        }
+
+        public void setNext(NodeTransfer next) {
+            this.next = next;
+        }
+
+        public NodeTransfer getPrevious() {
+            return previous;
+        }
+
+        public void setPrevious(NodeTransfer previous) {
+            this.previous = previous;
+        }
+    }
+}
@@ -22,13 +22,43 @@
 
 package test;
 
+import io.dynabiz.mapper.CacheStats;
+import io.dynabiz.mapper.GeneratedMapper;
 import io.dynabiz.mapper.Mapped;
+import io.dynabiz.mapper.MappedConfig;
+import io.dynabiz.mapper.MappedCreator;
+import io.dynabiz.mapper.Mapper;
+import io.dynabiz.mapper.MapperEngine;
+import io.dynabiz.mapper.MapperException;
+import io.dynabiz.mapper.MappingStats;
 import io.dynabiz.mapper.ObjectMapper;
+import io.dynabiz.mapper.PatchMode;
+import io.dynabiz.mapper.PropertyChanges;
+import io.dynabiz.mapper.TargetPool;
 import org.junit.Test;
 
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.math.BigDecimal;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
 import java.sql.Timestamp;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 public class MapperTest {
 
@@ -63,6 +93,608 @@ public class MapperTest {
         assert transfer.isCanReturns();
     }
 
+    @Test
+    public void testMapperPlanReuse() {
+        OrderEntity entity = new OrderEntity();
+        entity.setOrderID(1002);
+        entity.setPhone("987654321");
+        entity.setTotalDiscount(BigDecimal.ONE);
+
+        for (int i = 0; i < 3; i++) {
+            entity.setOrderID(entity.getOrderID() + i);
+            VipOrderTransfer transfer = ObjectMapper.mapFrom(VipOrderTransfer.class, entity);
+            assert transfer.getOrderID() == entity.getOrderID();
+            assert transfer.getUserPhone().equals(entity.getPhone());
+            assert transfer.getPhone().equals(entity.getPhone());
+        }
+    }
+
+
+    @Test
+    public void testGeneratedMapper() throws ClassNotFoundException {
+        Class<?> mapperClass = Class.forName(GeneratedMapper.getMapperName(OrderTransfer.class.getName()));
+        assert GeneratedMapper.class.isAssignableFrom(mapperClass);
+        assert mapperClass.getName().equals("test.MapperTest$OrderTransfer_$Mapper");
+
+        Class<?> collidingClass = Class.forName(GeneratedMapper.getMapperName(MapperTest_OrderTransfer.class.getName()));
+        assert collidingClass != mapperClass;
+        MapperTest_OrderTransfer transfer = ObjectMapper.mapFrom(MapperTest_OrderTransfer.class, new OrderEntity());
+        assert transfer.getOrderID() == 0;
+    }
+
+    @Test
+    public void testRegister() {
+        ObjectMapper.register(OrderTransfer.class, OrderEntity.class);
+        OrderEntity sample = new OrderEntity();
+        sample.setTotalDiscount(BigDecimal.ZERO);
+        ObjectMapper.warmUpWith(OrderTransfer.class, sample, 100);
+
+        try {
+            ObjectMapper.register(OrderTransfer.class, String.class);
+            assert false;
+        }
+        catch (MapperException e){
+            assert e.getMessage().startsWith("Cannot find get method");
+        }
+
+        List<Class<?>> registered = ObjectMapper.registerPackage("test");
+        assert registered.contains(OrderTransfer.class);
+        assert registered.contains(VipOrderTransfer.class);
+        assert !registered.contains(OrderEntity.class);
+    }
+
+    @Test
+    public void testMapperInstance() {
+        Mapper mapper = Mapper.builder().engine(MapperEngine.REFLECTION).cacheSize(2).build();
+        OrderEntity entity = new OrderEntity();
+        entity.setOrderID(1003);
+        entity.setPhone("555");
+        entity.setTotalDiscount(BigDecimal.ONE);
+        VipOrderTransfer vip = mapper.mapFrom(VipOrderTransfer.class, entity);
+        assert vip.getPhone().equals("555");
+
+        OrderTransfer transfer = mapper.mapFrom(OrderTransfer.class, entity);
+        assert transfer.getOrderID() == 1003;
+        transfer = mapper.mapFrom(OrderTransfer.class, vip);
+        assert transfer.getUserPhone().equals("555");
+        mapper.mapFrom(OrderTransfer.class, vip);
+
+        CacheStats stats = mapper.getCacheStats();
+        System.out.println(stats);
+        assert stats.getMissCount() == 3;
+        assert stats.getHitCount() == 1;
+        assert stats.getEvictionCount() == 1;
+        assert stats.getSize() == 2;
+    }
+
+    @Test
+    public void testFieldAccess() {
+        OrderEntity entity = new OrderEntity();
+        entity.setOrderID(1004);
+        entity.setItems(new String[]{"A"});
+        entity.setTotalPrice(BigDecimal.TEN);
+        entity.setPhone("666");
+
+        for (MapperEngine engine : new MapperEngine[]{MapperEngine.REFLECTION, MapperEngine.METHOD_HANDLE, MapperEngine.GENERATED}) {
+            Mapper mapper = Mapper.builder().engine(engine).build();
+            FieldOrderTransfer transfer = mapper.mapFrom(FieldOrderTransfer.class, entity);
+            assert transfer.orderID == 1004;
+            assert transfer.items == entity.getItems();
+            assert transfer.totalPrice.equals(BigDecimal.TEN);
+            assert transfer.userPhone.equals("666");
+
+            FieldOrderTransfer copy = mapper.mapFrom(FieldOrderTransfer.class, transfer);
+            assert copy.orderID == 1004;
+            assert copy.totalPrice.equals(BigDecimal.TEN);
+        }
+    }
+
+    @Test
+    public void testFilter() {
+        OrderEntity entity = new OrderEntity();
+        entity.setPhone("13812345678");
+
+        for (int i = 0; i < 2; i++) {
+            MaskedOrderTransfer transfer = ObjectMapper.mapFrom(MaskedOrderTransfer.class, entity);
+            assert transfer.getPhone().equals("138****5678");
+            assert entity.getPhone().equals("13812345678");
+        }
+        Mapper mapper = Mapper.builder().filterFactory(filterClass -> null).build();
+        assert mapper.mapFrom(MaskedOrderTransfer.class, entity).getPhone().equals("138****5678");
+        assert PhoneMask.INSTANCES.get() == 1;
+
+        Function<String, String> hidden = phone -> "***";
+        mapper = Mapper.builder().filter(PhoneMask.class, hidden).build();
+        assert mapper.mapFrom(MaskedOrderTransfer.class, entity).getPhone().equals("***");
+    }
+
+    @Test
+    public void testConverter() {
+        OrderEntity entity = new OrderEntity();
+        entity.setOrderID(1005);
+        entity.setTime(new Timestamp(1500000000000L));
+        entity.setTotalPrice(new BigDecimal("1E+3"));
+        entity.setPhone("13812345678");
+
+        for (MapperEngine engine : new MapperEngine[]{MapperEngine.REFLECTION, MapperEngine.GENERATED}) {
+            ConvertedOrderTransfer transfer = Mapper.builder().engine(engine).build()
+                    .mapFrom(ConvertedOrderTransfer.class, entity);
+            assert transfer.getOrderID() == 1005.0;
+            assert transfer.getTime() == 1500000000000L;
+            assert transfer.getTotalPrice().equals("1000");
+            assert transfer.getPhone() == 13812345678L;
+        }
+
+        Mapper mapper = Mapper.builder()
+                .converter(Number.class, String.class, price -> "$" + price.intValue())
+                .build();
+        assert mapper.mapFrom(ConvertedOrderTransfer.class, entity).getTotalPrice().equals("$1000");
+
+        try {
+            Mapper.builder().build().register(NarrowedOrderTransfer.class, OrderEntity.class);
+            assert false;
+        } catch (MapperException e) {
+            assert e.getMessage().contains("totalPrice");
+        }
+        mapper = Mapper.builder().converter(BigDecimal.class, long.class, BigDecimal::longValueExact).build();
+        mapper.register(NarrowedOrderTransfer.class, OrderEntity.class);
+        assert mapper.mapFrom(NarrowedOrderTransfer.class, entity).getTotalPrice() == 1000L;
+    }
+
+    @Test
+    public void testMapConversion() {
+        OrderTransfer transfer = new OrderTransfer();
+        transfer.setOrderID(1006);
+        transfer.setTotalPrice(BigDecimal.TEN);
+        transfer.setTotalDiscount(BigDecimal.ONE);
+        transfer.setUserPhone("13812345678");
+
+        for (MapperEngine engine : new MapperEngine[]{MapperEngine.REFLECTION, MapperEngine.GENERATED}) {
+            Mapper mapper = Mapper.builder().engine(engine).build();
+            Map<String, Object> map = mapper.mapToMap(transfer);
+            assert map.size() == 6;
+            assert map.get("orderID").equals(1006L);
+            assert map.get("phone").equals("13812345678");
+            assert !map.containsKey("userPhone");
+
+            map.put("orderID", 1007);
+            map.put("totalPrice", "12.50");
+            OrderTransfer copy = mapper.mapFrom(OrderTransfer.class, map);
+            assert copy.getOrderID() == 1007;
+            assert copy.getTotalPrice().equals(new BigDecimal("12.50"));
+            assert copy.getUserPhone().equals("13812345678");
+
+            Map<String, Object> patch = new HashMap<>();
+            patch.put("phone", "13900000000");
+            mapper.map(copy, patch);
+            assert copy.getUserPhone().equals("13900000000");
+            assert copy.getOrderID() == 1007;
+        }
+    }
+
+    @Test
+    public void testPatch() {
+        OrderTransfer transfer = new OrderTransfer();
+        transfer.setOrderID(1007);
+        transfer.setTotalPrice(BigDecimal.TEN);
+        transfer.setUserPhone("13812345678");
+        OrderEntity entity = new OrderEntity();
+        entity.setOrderID(1007);
+        entity.setTotalPrice(new BigDecimal("20"));
+
+        PropertyChanges diff = ObjectMapper.diff(transfer, entity);
+        assert diff.getNames().equals(Arrays.asList("totalPrice", "userPhone"));
+        assert transfer.getTotalPrice().equals(BigDecimal.TEN);
+
+        PropertyChanges patched = ObjectMapper.patch(transfer, entity);
+        assert patched.size() == 1 && patched.contains("totalPrice");
+        assert transfer.getTotalPrice().equals(new BigDecimal("20"));
+        assert transfer.getUserPhone().equals("13812345678");
+
+        patched = ObjectMapper.patch(transfer, entity, PatchMode.SKIP_UNCHANGED);
+        assert patched.getNames().equals(Arrays.asList("userPhone"));
+        assert patched.toBitSet().cardinality() == 1;
+        assert transfer.getUserPhone() == null;
+        assert ObjectMapper.diff(transfer, entity).isEmpty();
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        OrderEntity entity = new OrderEntity();
+        entity.setPhone("13812345678");
+
+        assert ObjectMapper.getDefault().getMetrics() == null;
+        Mapper mapper = Mapper.builder().metrics(true).build();
+        for (int i = 0; i < 3; i++) mapper.mapFrom(MaskedOrderTransfer.class, entity);
+
+        MappingStats stats = mapper.getMetrics().snapshot(MaskedOrderTransfer.class, OrderEntity.class);
+        assert stats.getCallCount() == 3;
+        assert stats.getPropertyCount() == 3;
+        assert stats.getFilterCount() == 3;
+        assert stats.getHitCount() == 2;
+        assert stats.getCompileCount() == 1;
+        assert Arrays.stream(stats.getLatencyHistogram()).sum() == 3;
+        assert stats.getLatencyP99Nanos() >= stats.getLatencyP50Nanos();
+
+        ObjectName name = mapper.getMetrics().register("test");
+        try {
+            CompositeData[] pairs = (CompositeData[]) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Pairs");
+            assert pairs.length == 1;
+            assert pairs[0].get("callCount").equals(3L);
+            assert pairs[0].get("hitCount").equals(2L);
+        } finally {
+            mapper.getMetrics().unregister();
+        }
+        mapper.getMetrics().reset();
+        assert mapper.getMetrics().snapshot(MaskedOrderTransfer.class, OrderEntity.class).getCallCount() == 0;
+        assert mapper.getMetrics().snapshot(MaskedOrderTransfer.class, OrderEntity.class).getHitCount() == 0;
+    }
+
+    @Test
+    public void testTieredEngine() throws Exception {
+        OrderEntity entity = new OrderEntity();
+        entity.setOrderID(1001);
+        entity.setPhone("13812345678");
+        entity.setTotalDiscount(new BigDecimal("0.5"));
+
+        Mapper mapper = Mapper.builder().engine(MapperEngine.tiered(MapperEngine.GENERATED, 100)).metrics(true).build();
+        for (int i = 0; i < 99; i++) mapper.mapFrom(MaskedOrderTransfer.class, entity);
+        assert mapper.getMetrics().snapshot(MaskedOrderTransfer.class, OrderEntity.class).getCompileCount() == 1;
+        assert mapper.mapFrom(MaskedOrderTransfer.class, entity).getPhone().equals("138****5678");
+        assert mapper.getMetrics().snapshot(MaskedOrderTransfer.class, OrderEntity.class).getCompileCount() == 2;
+        assert mapper.mapFrom(MaskedOrderTransfer.class, entity).getPhone().equals("138****5678");
+
+        Mapper concurrent = Mapper.builder().engine(MapperEngine.tiered(MapperEngine.METHOD_HANDLE, 1000)).metrics(true).build();
+        AtomicInteger mismatches = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 5000; j++) {
+                        if(concurrent.mapFrom(OrderTransfer.class, entity).getOrderID() != 1001) mismatches.incrementAndGet();
+                    }
+                } catch (MapperException e) {
+                    mismatches.incrementAndGet();
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) thread.join();
+        assert mismatches.get() == 0;
+        assert concurrent.getMetrics().snapshot(OrderTransfer.class, OrderEntity.class).getCompileCount() == 2;
+        assert concurrent.getMetrics().snapshot(OrderTransfer.class, OrderEntity.class).getCallCount() == 20000;
+    }
+
+    @Test
+    public void testCreator() {
+        OrderEntity entity = new OrderEntity();
+        entity.setOrderID(1008);
+        entity.setPhone("13812345678");
+        entity.setTotalPrice(BigDecimal.TEN);
+
+        for (MapperEngine engine : new MapperEngine[]{MapperEngine.REFLECTION, MapperEngine.GENERATED}) {
+            Mapper mapper = Mapper.builder().engine(engine).build();
+            OrderView view = mapper.mapFrom(OrderView.class, entity);
+            assert view.getOrderID() == 1008;
+            assert view.getUserPhone().equals("13812345678");
+            assert view.getTotalPrice().equals(BigDecimal.TEN);
+
+            OrderCard card = mapper.mapFrom(OrderCard.class, entity);
+            assert card.getOrderID() == 1008;
+            assert card.getPhone().equals("13812345678");
+            assert mapper.mapAll(OrderCard.class, Arrays.asList(entity, entity)).get(1).getOrderID() == 1008;
+
+            Map<String, Object> map = new HashMap<>();
+            map.put("phone", "13900000000");
+            view = mapper.mapFrom(OrderView.class, map);
+            assert view.getOrderID() == 0;
+            assert view.getUserPhone().equals("13900000000");
+        }
+        ObjectMapper.getDefault().register(OrderView.class, OrderEntity.class);
+    }
+
+    @Test
+    public void testRecycledTargets() {
+        OrderEntity entity = new OrderEntity();
+        entity.setOrderID(1009);
+        entity.setPhone("13812345678");
+        entity.setTotalPrice(BigDecimal.TEN);
+
+        OrderView view = ObjectMapper.reset(ObjectMapper.mapFrom(OrderView.class, entity));
+        assert view.getTotalPrice() == null;
+        assert view.getOrderID() == 1009;
+
+        Map<String, Object> map = ObjectMapper.reset(ObjectMapper.mapToMap(view));
+        assert map.isEmpty();
+
+        TargetPool<MaskedOrderTransfer> pool = TargetPool.striped(ObjectMapper.getDefault(), MaskedOrderTransfer.class, 2);
+        MaskedOrderTransfer transfer = pool.mapFrom(entity);
+        assert transfer.getPhone().equals("138****5678");
+        pool.release(transfer);
+        assert transfer.getPhone() == null;
+        assert pool.acquire() == transfer;
+        assert pool.acquire() != transfer;
+
+        entity.setTotalDiscount(BigDecimal.ONE);
+        for (MapperEngine engine : new MapperEngine[]{MapperEngine.REFLECTION, MapperEngine.GENERATED}) {
+            Mapper mapper = Mapper.builder().engine(engine).build();
+            TargetPool<OrderTransfer> orders = TargetPool.perThread(mapper, OrderTransfer.class, 1);
+            OrderTransfer order = orders.mapFrom(entity);
+            assert order.getTotalDiscount().equals(new BigDecimal("11"));
+            orders.release(order);
+            assert order.getTotalDiscount() == null;
+            assert order.getOrderID() == 0;
+            assert order.getUserPhone() == null;
+
+            TargetPool<RenamedPhoneTransfer> phones = TargetPool.perThread(mapper, RenamedPhoneTransfer.class, 1);
+            RenamedPhoneTransfer phone = phones.mapFrom(entity);
+            assert phone.getPhone().equals("13812345678");
+            phones.release(phone);
+            assert phone.getPhone() == null;
+        }
+    }
+
+    @Test
+    public void testMappedIndex() {
+        Mapper mapper = Mapper.builder().build();
+        List<Class<?>> registered = mapper.registerIndexed(MapperTest.class.getClassLoader());
+        assert registered.contains(OrderTransfer.class);
+        assert registered.contains(OrderView.class);
+
+        OrderEntity entity = new OrderEntity();
+        entity.setOrderID(1010);
+        entity.setPhone("13812345678");
+        OrderView view = mapper.mapFrom(OrderView.class, entity);
+        assert view.getOrderID() == 1010;
+        assert view.getUserPhone().equals("13812345678");
+    }
+
+    @Test
+    public void testStaleMappedIndex() throws Exception {
+        // Written before phone was annotated, and claiming no mapper was generated, so the entry would be used.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(bytes);
+        index.writeInt(0x444D4958);
+        index.writeShort(2);
+        index.writeInt(1);
+        index.writeUTF(IndexedTransfer.class.getName());
+        index.writeBoolean(false);
+        index.writeInt(Collections.singletonList("field orderID").hashCode());
+        index.writeShort(1);
+        index.writeByte(0);
+        for (String value : new String[]{"orderID", "orderID", "long", "setOrderID", "long"}) index.writeUTF(value);
+        index.writeShort(0);
+        index.writeUTF("");
+        index.writeUTF("AUTO");
+        index.flush();
+
+        Class<?> type = new IndexLoader(bytes.toByteArray()).loadClass(IndexedTransfer.class.getName());
+        assert type != IndexedTransfer.class;
+        OrderEntity entity = new OrderEntity();
+        entity.setOrderID(1011);
+        entity.setPhone("13812345678");
+        Object transfer = Mapper.builder().build().mapFrom(type, entity);
+        assert type.getMethod("getOrderID").invoke(transfer).equals(1011L);
+        assert type.getMethod("getPhone").invoke(transfer).equals("13812345678");
+    }
+
+    @Test
+    public void testSourceRestriction() throws Exception {
+        assert isGenerated(SourcedTransfer.class);
+        assertSourceRestriction(SourcedTransfer.class, SourcedTransfer::getOrderID, SourcedTransfer::getPhone);
+
+        List<Class<?>> indexed = Mapper.builder().build().registerIndexed(MapperTest.class.getClassLoader());
+        assert indexed.contains(SourcedCard.class) && !isGenerated(SourcedCard.class);
+        assertSourceRestriction(SourcedCard.class, SourcedCard::getOrderID, SourcedCard::getPhone);
+
+        assert !indexed.contains(ScannedTransfer.class) && !isGenerated(ScannedTransfer.class);
+        assertSourceRestriction(ScannedTransfer.class, ScannedTransfer::getOrderID, ScannedTransfer::getPhone);
+    }
+
+    private static boolean isGenerated(Class<?> type) {
+        try {
+            Class.forName(GeneratedMapper.getMapperName(type.getName()), false, type.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Maps a target whose phone is restricted to {@link OrderEntity} sources from an entity, a subclass of
+     * it standing for a proxy, and an unrelated source.
+     */
+    private static <T> void assertSourceRestriction(Class<T> type, ToLongFunction<T> orderID, Function<T, String> phone) {
+        OrderEntity entity = new OrderEntity();
+        entity.setOrderID(1011);
+        entity.setPhone("13812345678");
+        OrderEntity proxy = new OrderEntity() {
+        };
+        proxy.setOrderID(1012);
+        proxy.setPhone("13900000000");
+        OrderTransfer transfer = new OrderTransfer();
+        transfer.setOrderID(1013);
+
+        for (MapperEngine engine : new MapperEngine[]{MapperEngine.REFLECTION, MapperEngine.GENERATED}) {
+            Mapper mapper = Mapper.builder().engine(engine).build();
+            mapper.register(type);
+            assert mapper.getCacheStats().getMissCount() == 1;
+
+            T sourced = mapper.mapFrom(type, entity);
+            assert orderID.applyAsLong(sourced) == 1011;
+            assert phone.apply(sourced).equals("13812345678");
+            assert mapper.getCacheStats().getMissCount() == 1;
+
+            sourced = mapper.mapFrom(type, proxy);
+            assert orderID.applyAsLong(sourced) == 1012;
+            assert phone.apply(sourced).equals("13900000000");
+
+            sourced = mapper.mapFrom(type, transfer);
+            assert orderID.applyAsLong(sourced) == 1013;
+            assert phone.apply(sourced) == null;
+            assert mapper.getCacheStats().getMissCount() == 3;
+        }
+    }
+
+    @Test
+    public void testGetterExceptionIsWrapped() {
+        try {
+            ObjectMapper.map(new OrderTransfer(), new UnloadedOrderEntity());
+            assert false;
+        }
+        catch (MapperException e){
+            assert e.getCause() != null;
+        }
+    }
+
+
+    /**
+     * Declared through the mapped index, its creator keeps the processor from generating a mapper.
+     */
+    public static class SourcedCard {
+        @Mapped
+        private final long orderID;
+        @Mapped(targetClass = OrderEntity.class)
+        private final String phone;
+
+        @MappedCreator({"orderID", "phone"})
+        public SourcedCard(long orderID, String phone) {
+            this.orderID = orderID;
+            this.phone = phone;
+        }
+
+        public long getOrderID() {
+            return orderID;
+        }
+
+        public String getPhone() {
+            return phone;
+        }
+    }
+
+    /**
+     * Declared by scanning its annotations, the processor skips private classes.
+     */
+    private static class ScannedTransfer {
+        @Mapped
+        private long orderID;
+        @Mapped(targetClass = OrderEntity.class)
+        private String phone;
+
+        public long getOrderID() {
+            return orderID;
+        }
+
+        public void setOrderID(long orderID) {
+            this.orderID = orderID;
+        }
+
+        public String getPhone() {
+            return phone;
+        }
+
+        public void setPhone(String phone) {
+            this.phone = phone;
+        }
+    }
+
+    public static class SourcedTransfer {
+        @Mapped
+        private long orderID;
+        @Mapped(targetClass = OrderEntity.class)
+        private String phone;
+
+        public long getOrderID() {
+            return orderID;
+        }
+
+        public void setOrderID(long orderID) {
+            this.orderID = orderID;
+        }
+
+        public String getPhone() {
+            return phone;
+        }
+
+        public void setPhone(String phone) {
+            this.phone = phone;
+        }
+    }
+
+    public static class OrderView {
+        @Mapped
+        private final long orderID;
+        @Mapped(name = "phone")
+        private final String userPhone;
+        @Mapped
+        private BigDecimal totalPrice;
+
+        @MappedCreator({"orderID", "userPhone"})
+        public OrderView(long orderID, String userPhone) {
+            this.orderID = orderID;
+            this.userPhone = userPhone;
+        }
+
+        public long getOrderID() {
+            return orderID;
+        }
+
+        public String getUserPhone() {
+            return userPhone;
+        }
+
+        public BigDecimal getTotalPrice() {
+            return totalPrice;
+        }
+
+        public void setTotalPrice(BigDecimal totalPrice) {
+            this.totalPrice = totalPrice;
+        }
+    }
+
+    public static class OrderCard {
+        @Mapped
+        private final long orderID;
+        @Mapped
+        private final String phone;
+
+        private OrderCard(Builder builder) {
+            this.orderID = builder.orderID;
+            this.phone = builder.phone;
+        }
+
+        @MappedCreator
+        public static Builder builder(){
+            return new Builder();
+        }
+
+        public long getOrderID() {
+            return orderID;
+        }
+
+        public String getPhone() {
+            return phone;
+        }
+
+        public static class Builder {
+            private long orderID;
+            private String phone;
+
+            public Builder orderID(long orderID){
+                this.orderID = orderID;
+                return this;
+            }
+
+            public Builder withPhone(String phone){
+                this.phone = phone;
+                return this;
+            }
+
+            public OrderCard build(){
+                return new OrderCard(this);
+            }
+        }
+    }
 
     public static class OrderEntity{
         private long orderID;
@@ -220,4 +852,210 @@ public class MapperTest {
                     '}';
         }
     }
+
+    public static class VipOrderTransfer extends OrderTransfer {
+        @Mapped
+        private String phone;
+
+        public String getPhone() {
+            return phone;
+        }
+
+        public void setPhone(String phone) {
+            this.phone = phone;
+        }
+    }
+
+    @MappedConfig(fieldAccess = true)
+    public static class FieldOrderTransfer {
+        @Mapped
+        private long orderID;
+        @Mapped
+        private String[] items;
+        @Mapped
+        private BigDecimal totalPrice;
+        @Mapped(name = "phone")
+        private String userPhone;
+
+        public String getPhone() {
+            return userPhone;
+        }
+    }
+
+    public static class NarrowedOrderTransfer {
+        @Mapped
+        private long totalPrice;
+
+        public long getTotalPrice() {
+            return totalPrice;
+        }
+
+        public void setTotalPrice(long totalPrice) {
+            this.totalPrice = totalPrice;
+        }
+    }
+
+    public static class ConvertedOrderTransfer {
+        @Mapped
+        private double orderID;
+        @Mapped
+        private long time;
+        @Mapped
+        private String totalPrice;
+        @Mapped
+        private long phone;
+
+        public double getOrderID() {
+            return orderID;
+        }
+
+        public void setOrderID(double orderID) {
+            this.orderID = orderID;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public void setTime(long time) {
+            this.time = time;
+        }
+
+        public String getTotalPrice() {
+            return totalPrice;
+        }
+
+        public void setTotalPrice(String totalPrice) {
+            this.totalPrice = totalPrice;
+        }
+
+        public long getPhone() {
+            return phone;
+        }
+
+        public void setPhone(long phone) {
+            this.phone = phone;
+        }
+    }
+
+    public static class MaskedOrderTransfer {
+        @Mapped(filter = PhoneMask.class)
+        private String phone;
+
+        public String getPhone() {
+            return phone;
+        }
+
+        public void setPhone(String phone) {
+            this.phone = phone;
+        }
+    }
+
+    public static class IndexedTransfer {
+        @Mapped
+        private long orderID;
+        @Mapped
+        private String phone;
+
+        public long getOrderID() {
+            return orderID;
+        }
+
+        public void setOrderID(long orderID) {
+            this.orderID = orderID;
+        }
+
+        public String getPhone() {
+            return phone;
+        }
+
+        public void setPhone(String phone) {
+            this.phone = phone;
+        }
+    }
+
+    /**
+     * Defines {@link IndexedTransfer} itself and sees only the given mapped index.
+     */
+    private static final class IndexLoader extends ClassLoader {
+        private static final String INDEX = "META-INF/dynabiz/mapped.idx";
+        private final byte[] index;
+
+        private IndexLoader(byte[] index) {
+            super(MapperTest.class.getClassLoader());
+            this.index = index;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if(!name.equals(IndexedTransfer.class.getName())) return super.loadClass(name, resolve);
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if(type != null) return type;
+                try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[4096];
+                    for (int n; (n = in.read(buffer)) > 0; ) out.write(buffer, 0, n);
+                    byte[] bytes = out.toByteArray();
+                    return defineClass(name, bytes, 0, bytes.length);
+                } catch (IOException e) {
+                    throw new ClassNotFoundException(name, e);
+                }
+            }
+        }
+
+        @Override
+        public Enumeration<URL> getResources(String name) throws IOException {
+            if(!name.equals(INDEX)) return super.getResources(name);
+            URL url = new URL(null, "index:" + INDEX, new URLStreamHandler() {
+                @Override
+                protected URLConnection openConnection(URL u) {
+                    return new URLConnection(u) {
+                        @Override
+                        public void connect() {
+                        }
+
+                        @Override
+                        public InputStream getInputStream() {
+                            return new ByteArrayInputStream(index);
+                        }
+                    };
+                }
+            });
+            return Collections.enumeration(Collections.singletonList(url));
+        }
+    }
+
+    public static class RenamedPhoneTransfer {
+        private String phoneNumber;
+
+        public String getPhone() {
+            return phoneNumber;
+        }
+
+        @Mapped
+        public void setPhone(String phone) {
+            this.phoneNumber = phone;
+        }
+    }
+
+    public static class PhoneMask implements Function<String, String> {
+        static final AtomicInteger INSTANCES = new AtomicInteger();
+
+        public PhoneMask() {
+            INSTANCES.incrementAndGet();
+        }
+
+        @Override
+        public String apply(String phone) {
+            return phone.substring(0, 3) + "****" + phone.substring(7);
+        }
+    }
+
+    public static class UnloadedOrderEntity extends OrderEntity {
+        @Override
+        public String getPhone() {
+            throw new IllegalStateException("phone is not loaded");
+        }
+    }
 }
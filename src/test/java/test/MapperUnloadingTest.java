@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2018, Deyu Heng. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package test;
+
+import io.dynabiz.mapper.GeneratedMapper;
+import io.dynabiz.mapper.Mapped;
+import io.dynabiz.mapper.Mapper;
+import io.dynabiz.mapper.MapperEngine;
+import io.dynabiz.mapper.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+public class MapperUnloadingTest {
+
+    @Test
+    public void testTargetClassIsUnloaded() throws Exception {
+        for (MapperEngine engine : new MapperEngine[]{MapperEngine.REFLECTION, MapperEngine.GENERATED}) {
+            Mapper mapper = Mapper.builder().engine(engine).build();
+            WeakReference<ClassLoader> loader = mapInIsolatedLoader(mapper);
+            awaitCollection(loader);
+            assert loader.get() == null;
+            assert mapper.getCacheStats().getMissCount() == 3;
+        }
+    }
+
+    @Test
+    public void testMetricsOfUnloadedClassesAreDropped() throws Exception {
+        Mapper mapper = Mapper.builder().metrics(true).build();
+        WeakReference<ClassLoader> first = mapInIsolatedLoader(mapper);
+        WeakReference<ClassLoader> second = mapInIsolatedLoader(mapper);
+        assert countPairs(mapper) == 2;
+
+        awaitCollection(first);
+        awaitCollection(second);
+        assert first.get() == null && second.get() == null;
+        assert countPairs(mapper) == 0;
+    }
+
+    /**
+     * @return the number of pairs counted for the {@link UnloadedTransfer} classes of isolated loaders.
+     */
+    private static long countPairs(Mapper mapper) {
+        return mapper.getMetrics().snapshot().stream()
+                .filter(stats -> stats.getTargetType().equals(UnloadedTransfer.class.getName())
+                        && stats.getSourceType().equals(SharedEntity.class.getName()))
+                .count();
+    }
+
+    @Test
+    public void testClearedMapperReleasesPlans() throws Exception {
+        WeakReference<NameFilter> filter = mapWithFilter(false);
+        awaitCollection(filter);
+        assert filter.get() == null;
+
+        Mapper original = ObjectMapper.getDefault();
+        try {
+            filter = mapWithFilter(true);
+        } finally {
+            ObjectMapper.setDefault(original);
+        }
+        awaitCollection(filter);
+        assert filter.get() == null;
+    }
+
+    /**
+     * Maps through a filter only the discarded mapper and its plans refer to.
+     */
+    private static WeakReference<NameFilter> mapWithFilter(boolean asDefault) {
+        NameFilter filter = new NameFilter();
+        Mapper mapper = Mapper.builder().filter(NameFilter.class, filter).build();
+        if(asDefault) ObjectMapper.setDefault(mapper);
+        assert mapper.mapFrom(FilteredTransfer.class, new SharedEntity(1017, "name")).getName().equals("NAME");
+        if(!asDefault) mapper.clear();
+        return new WeakReference<>(filter);
+    }
+
+    private static void awaitCollection(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 100 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+
+    private static WeakReference<ClassLoader> mapInIsolatedLoader(Mapper mapper) throws Exception {
+        ClassLoader loader = new IsolatedLoader();
+        Class<?> type = loader.loadClass(UnloadedTransfer.class.getName());
+        assert type != UnloadedTransfer.class;
+
+        Object transfer = mapper.mapFrom(type, new SharedEntity(1015, "shared"));
+        assert type.getMethod("getId").invoke(transfer).equals(1015L);
+        assert type.getMethod("getName").invoke(transfer).equals("shared");
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", 1016L);
+        transfer = mapper.mapFrom(type, map);
+        assert type.getMethod("getId").invoke(transfer).equals(1016L);
+
+        SharedTransfer shared = mapper.mapFrom(SharedTransfer.class, transfer);
+        assert shared.getId() == 1016L;
+        return new WeakReference<>(loader);
+    }
+
+    /**
+     * Loads {@link UnloadedTransfer} and its generated mapper itself, like the loader of a redeployed module.
+     */
+    private static final class IsolatedLoader extends ClassLoader {
+        private static final String TRANSFER = UnloadedTransfer.class.getName();
+        private static final String MAPPER = GeneratedMapper.getMapperName(TRANSFER);
+
+        private IsolatedLoader() {
+            super(MapperUnloadingTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if(!name.equals(TRANSFER) && !name.equals(MAPPER)) return super.loadClass(name, resolve);
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if(type != null) return type;
+                try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                    if(in == null) throw new ClassNotFoundException(name);
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[4096];
+                    for (int n; (n = in.read(buffer)) > 0; ) out.write(buffer, 0, n);
+                    byte[] bytes = out.toByteArray();
+                    return defineClass(name, bytes, 0, bytes.length);
+                } catch (IOException e) {
+                    throw new ClassNotFoundException(name, e);
+                }
+            }
+        }
+    }
+
+    public static class SharedEntity {
+        private final long id;
+        private final String name;
+
+        public SharedEntity(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static class NameFilter implements Function<String, String> {
+        @Override
+        public String apply(String value) {
+            return value == null ? null : value.toUpperCase();
+        }
+    }
+
+    public static class FilteredTransfer {
+        @Mapped(filter = NameFilter.class)
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class SharedTransfer {
+        @Mapped
+        private long id;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+    }
+
+    public static class UnloadedTransfer {
+        @Mapped
+        private long id;
+        @Mapped
+        private String name;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}